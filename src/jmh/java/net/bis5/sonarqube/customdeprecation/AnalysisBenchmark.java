@@ -0,0 +1,74 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.checks.verifier.CheckVerifier;
+
+/**
+ * Runs the check end to end on a generated corpus through the Java frontend.
+ * The corpus marks every expected issue, so each iteration also verifies the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    @Param({"100"})
+    public int files;
+
+    @Param({"0.001", "0.05"})
+    public double hitRate;
+
+    @Param({"1000"})
+    public int entries;
+
+    private Path corpus;
+    private List<String> paths;
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = Files.createTempDirectory("custom-deprecation-bench");
+        paths = BenchmarkData.writeCorpus(corpus, files, hitRate);
+        json = BenchmarkData.configJson(entries);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(corpus)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void analyze() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = json;
+
+        CheckVerifier.newVerifier()
+            .onFiles(paths)
+            .withCheck(check)
+            .verifyIssues();
+    }
+}
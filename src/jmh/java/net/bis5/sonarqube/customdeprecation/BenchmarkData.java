@@ -0,0 +1,110 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generators for the configurations and source corpora used by the benchmarks.
+ * Everything is derived from a fixed seed so results are comparable between runs.
+ */
+final class BenchmarkData {
+
+    /** Deprecated JDK APIs used as real hits in generated sources. */
+    static final String[][] HIT_APIS = {
+        {"java.util.Vector", "addElement", null},
+        {"java.util.Date", "getYear", null},
+        {"java.lang.StringBuffer", "append", "(java.lang.String)"},
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Builds a deprecatedApis JSON value with the given number of entries.
+     * The entries of {@link #HIT_APIS} come first; the rest are synthetic APIs that are never referenced.
+     *
+     * @param entries the total number of entries
+     * @return the JSON array
+     */
+    static String configJson(int entries) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String fqcn;
+            String member;
+            String arguments;
+            if (i < HIT_APIS.length) {
+                fqcn = HIT_APIS[i][0];
+                member = HIT_APIS[i][1];
+                arguments = HIT_APIS[i][2];
+            } else {
+                fqcn = "com.acme.legacy.module" + (i % 97) + ".Api" + (i / 10);
+                member = "method" + (i % 10);
+                arguments = i % 3 == 0 ? null : "(java.lang.String,int)";
+            }
+            json.append("{\"fqcn\":\"").append(fqcn)
+                .append("\",\"member\":\"").append(member)
+                .append("\",\"arguments\":").append(arguments == null ? "null" : "\"" + arguments + "\"")
+                .append(",\"migration\":\"Use the replacement of ").append(member)
+                .append("\",\"note\":\"Removed in 3.0\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Writes a corpus of independent Java source files into the given directory.
+     * Each file performs a fixed number of calls; the given ratio of them hits a configured API
+     * and is marked with a Noncompliant comment so the corpus can be verified.
+     *
+     * @param directory the target directory
+     * @param files the number of files to generate
+     * @param hitRate the ratio of calls that reference a configured API
+     * @return the paths of the generated files
+     * @throws IOException if a file cannot be written
+     */
+    static List<String> writeCorpus(Path directory, int files, double hitRate) throws IOException {
+        Random random = new Random(42);
+        List<String> paths = new ArrayList<>();
+        int callsPerFile = 50;
+        for (int i = 0; i < files; i++) {
+            StringBuilder source = new StringBuilder()
+                .append("package bench.p").append(i).append(";\n\n")
+                .append("import java.util.ArrayList;\nimport java.util.Date;\nimport java.util.List;\nimport java.util.Vector;\n\n")
+                .append("class Generated").append(i).append(" {\n")
+                .append("    void run(List<String> list, Vector<Object> vector, Date date, StringBuffer buffer) {\n");
+            for (int call = 0; call < callsPerFile; call++) {
+                // always keep one hit in the first file so the corpus has something to verify
+                boolean hit = (i == 0 && call == 0) || random.nextDouble() < hitRate;
+                if (hit) {
+                    source.append(hitCall(call)).append(" // Noncompliant\n");
+                } else {
+                    source.append("        list.add(String.valueOf(list.size() + ").append(call).append("));\n");
+                }
+            }
+            source.append("        new ArrayList<>(list).clear();\n    }\n}\n");
+            Path file = directory.resolve("Generated" + i + ".java");
+            Files.write(file, source.toString().getBytes(StandardCharsets.UTF_8));
+            paths.add(file.toString());
+        }
+        return paths;
+    }
+
+    private static String hitCall(int call) {
+        switch (call % HIT_APIS.length) {
+            case 0:
+                return "        vector.addElement(list);";
+            case 1:
+                return "        date.getYear();";
+            default:
+                return "        buffer.append(\"x\");";
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing and compilation of the deprecatedApis configuration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigParsingBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int entries;
+
+    private String json;
+    private List<DeprecatedApiConfig> parsed;
+
+    @Setup
+    public void setUp() {
+        json = BenchmarkData.configJson(entries);
+        parsed = DeprecatedApiConfig.parseFromJson(json);
+    }
+
+    @Benchmark
+    public List<DeprecatedApiConfig> parse() {
+        return DeprecatedApiConfig.parseFromJson(json);
+    }
+
+    @Benchmark
+    public DeprecatedApiMatcher compile() {
+        return DeprecatedApiMatcher.compile(parsed);
+    }
+}
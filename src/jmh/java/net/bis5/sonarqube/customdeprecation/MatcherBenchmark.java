@@ -0,0 +1,79 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the lookup performed by the check for every visited method call, constructor call and field access.
+ * Probes mix configured and unconfigured APIs at the given hit rate, the way call sites do in real code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatcherBenchmark {
+
+    private static final int PROBES = 4096;
+
+    @Param({"1000", "50000"})
+    public int entries;
+
+    @Param({"0.001", "0.01", "0.1"})
+    public double hitRate;
+
+    private DeprecatedApiMatcher matcher;
+    private String[] fqcns;
+    private String[] members;
+    private ArgumentSignature[] arguments;
+
+    @Setup
+    public void setUp() {
+        matcher = DeprecatedApiMatcher.compile(DeprecatedApiConfig.parseFromJson(BenchmarkData.configJson(entries)));
+        Random random = new Random(42);
+        fqcns = new String[PROBES];
+        members = new String[PROBES];
+        arguments = new ArgumentSignature[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            if (random.nextDouble() < hitRate) {
+                String[] api = BenchmarkData.HIT_APIS[i % BenchmarkData.HIT_APIS.length];
+                fqcns[i] = api[0];
+                members[i] = api[1];
+                arguments[i] = ArgumentSignature.parse(api[2] == null ? "()" : api[2]);
+            } else if (i % 2 == 0) {
+                // configured type, unconfigured member: the common case for a partially deprecated class
+                fqcns[i] = "java.util.Vector";
+                members[i] = "size";
+                arguments[i] = ArgumentSignature.NO_ARGUMENTS;
+            } else {
+                fqcns[i] = "java.util.List";
+                members[i] = "add";
+                arguments[i] = ArgumentSignature.of("java.lang.Object");
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void lookup(Blackhole blackhole) {
+        for (int i = 0; i < PROBES; i++) {
+            DeprecatedApiMatcher.MemberEntry entry = matcher.find(fqcns[i], members[i]);
+            blackhole.consume(entry == null ? null : entry.match(entry.needsArguments() ? arguments[i] : null));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import org.sonar.check.RuleProperty;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+
+/**
+ * Parameters of the Custom Deprecation rule, declared by every check instantiated for the rule.
+ * The Java analyzer sets each parameter of the active rule on the checks of the rule, and rejects a check
+ * that does not declare one of them.
+ */
+public abstract class AbstractCustomDeprecationCheck extends IssuableSubscriptionVisitor {
+
+    /**
+     * JSON array configuration of deprecated APIs to detect.
+     * Each element must contain fqcn, member, optional arguments, migration, and optional note fields.
+     * Default is an empty array, meaning no APIs are marked as deprecated.
+     */
+    @RuleProperty(
+        key = "deprecatedApis",
+        description = "JSON array of deprecated API configurations. Each element must have: fqcn (fully qualified class name), member (method/field name or '<init>' for constructors), arguments (optional source-style list), migration (recommended action), note (optional context)",
+        type = "TEXT",
+        defaultValue = "[]"
+    )
+    public String deprecatedApis = "[]";
+
+    /**
+     * Whether a method call also matches configurations of the methods it overrides and of the
+     * supertypes of its owner. Disabled by default, so only the declaring type is matched.
+     */
+    @RuleProperty(
+        key = "matchInherited",
+        description = "Also report calls to methods overriding a configured method, or declared with a configured member name in a subtype of a configured fqcn",
+        type = "BOOLEAN",
+        defaultValue = "false"
+    )
+    public boolean matchInherited = false;
+
+    /**
+     * How the references to one entry within a file are reported: {@code NONE} raises one issue per reference,
+     * {@code FILE} raises one issue on the first reference with the other references as secondary locations.
+     * Any other value is logged once per module and treated as {@code NONE}.
+     */
+    @RuleProperty(
+        key = "issueAggregation",
+        description = "NONE to raise one issue per reference, FILE to raise one issue per deprecated API and file, on the first reference, with the other references as secondary locations",
+        type = "SINGLE_SELECT_LIST,values=\"NONE,FILE\"",
+        defaultValue = "NONE"
+    )
+    public String issueAggregation = "NONE";
+
+    /**
+     * Maximum number of issues raised for one entry in a module; further references are counted but not reported.
+     * Default is 0, meaning no limit. The Java analyzer visits the files of a module one after another, so the
+     * issues kept are those of the files visited first; {@link ParallelScanEngine} keeps those of the first files
+     * by key instead, whatever the file a worker finishes first.
+     */
+    @RuleProperty(
+        key = "maxIssuesPerApi",
+        description = "Maximum number of issues raised for one deprecated API in a module, 0 for no limit",
+        type = "INTEGER",
+        defaultValue = "0"
+    )
+    public int maxIssuesPerApi = 0;
+}
@@ -0,0 +1,97 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+/**
+ * Wildcard syntax for the {@code fqcn} and {@code member} fields of a configuration.
+ * In a member name, {@code *} matches any sequence of characters, e.g. {@code get*}.
+ * A fqcn is matched segment by segment, segments being separated by dots: within a segment
+ * {@code *} matches any sequence of characters, and a {@code **} segment matches any number of
+ * segments, e.g. {@code com.acme.legacy.**} matches every type in that package and its subpackages.
+ * A nested type is part of the segment of its outer type, e.g. {@code Outer$Inner}.
+ */
+final class ApiPattern {
+
+    static final String ANY_SEGMENTS = "**";
+
+    private static final char WILDCARD = '*';
+
+    private ApiPattern() {
+    }
+
+    /**
+     * Checks whether the given fqcn or member contains a wildcard.
+     *
+     * @param value the configured value, may be null
+     * @return true if the value is a pattern rather than a name
+     */
+    static boolean isPattern(String value) {
+        return value != null && value.indexOf(WILDCARD) >= 0;
+    }
+
+    /**
+     * Matches a fully qualified class name against a fqcn pattern.
+     *
+     * @param pattern the fqcn pattern
+     * @param fqcn the fully qualified class name
+     * @return true if the name matches the pattern
+     */
+    static boolean matchesType(String pattern, String fqcn) {
+        return matchesSegments(pattern.split("\\.", -1), 0, fqcn.split("\\.", -1), 0);
+    }
+
+    /**
+     * Matches a single segment or a member name against a pattern where {@code *} matches any
+     * sequence of characters.
+     *
+     * @param pattern the pattern
+     * @param name the name
+     * @return true if the name matches the pattern
+     */
+    static boolean matchesGlob(String pattern, String name) {
+        int star = pattern.indexOf(WILDCARD);
+        if (star < 0) {
+            return pattern.equals(name);
+        }
+        // the parts between wildcards are compared in place, so a lookup allocates nothing
+        if (!name.regionMatches(0, pattern, 0, star)) {
+            return false;
+        }
+        int position = star;
+        int partStart = star + 1;
+        for (int next = pattern.indexOf(WILDCARD, partStart); next >= 0; next = pattern.indexOf(WILDCARD, partStart)) {
+            int found = indexOf(name, position, pattern, partStart, next - partStart);
+            if (found < 0) {
+                return false;
+            }
+            position = found + next - partStart;
+            partStart = next + 1;
+        }
+        int suffixLength = pattern.length() - partStart;
+        return name.length() - suffixLength >= position
+            && name.regionMatches(name.length() - suffixLength, pattern, partStart, suffixLength);
+    }
+
+    private static int indexOf(String name, int from, String pattern, int partStart, int partLength) {
+        for (int i = from; i + partLength <= name.length(); i++) {
+            if (name.regionMatches(i, pattern, partStart, partLength)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matchesSegments(String[] pattern, int p, String[] name, int n) {
+        if (p == pattern.length) {
+            return n == name.length;
+        }
+        if (ANY_SEGMENTS.equals(pattern[p])) {
+            for (int skipped = n; skipped <= name.length; skipped++) {
+                if (matchesSegments(pattern, p + 1, name, skipped)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return n < name.length && matchesGlob(pattern[p], name[n]) && matchesSegments(pattern, p + 1, name, n + 1);
+    }
+}
@@ -0,0 +1,118 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Argument list of a method or constructor as an array of source-style type names.
+ * Signatures parsed from the configuration and signatures computed from resolved symbols compare
+ * equal exactly when their source-style text, e.g. {@code (java.lang.String,int)}, is equal.
+ */
+final class ArgumentSignature {
+
+    /** Signature of a method or constructor without parameters. */
+    static final ArgumentSignature NO_ARGUMENTS = new ArgumentSignature(new String[0]);
+
+    private final String[] types;
+    private final int hash;
+
+    private ArgumentSignature(String[] types) {
+        this.types = types;
+        this.hash = Arrays.hashCode(types);
+    }
+
+    /**
+     * Creates a signature from type names.
+     *
+     * @param types the source-style type names of the parameters
+     * @return the signature
+     */
+    static ArgumentSignature of(String... types) {
+        return types.length == 0 ? NO_ARGUMENTS : new ArgumentSignature(types);
+    }
+
+    /**
+     * Parses a source-style argument list such as {@code (java.lang.String,int)}.
+     * Commas nested in type arguments do not separate parameters.
+     *
+     * @param text the argument list
+     * @return the signature, or null if the text is not enclosed in parentheses and therefore can never match
+     */
+    static ArgumentSignature parse(String text) {
+        if (text.length() < 2 || text.charAt(0) != '(' || text.charAt(text.length() - 1) != ')') {
+            return null;
+        }
+        if (text.length() == 2) {
+            return NO_ARGUMENTS;
+        }
+        List<String> types = new ArrayList<>();
+        int depth = 0;
+        int start = 1;
+        for (int i = 1; i < text.length() - 1; i++) {
+            char c = text.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                types.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        types.add(text.substring(start, text.length() - 1));
+        return new ArgumentSignature(types.toArray(new String[0]));
+    }
+
+    /**
+     * Gets the number of parameters.
+     *
+     * @return the parameter count
+     */
+    int size() {
+        return types.length;
+    }
+
+    /**
+     * Gets the source-style type name of a parameter.
+     *
+     * @param index the parameter index
+     * @return the type name
+     */
+    String type(int index) {
+        return types[index];
+    }
+
+    /**
+     * Returns an equal signature whose type names are taken from the given pool.
+     *
+     * @param pool the pool of the catalog being compiled
+     * @return the pooled signature
+     */
+    ArgumentSignature intern(StringPool pool) {
+        // the type names are pooled before this signature may become visible to other threads
+        for (int i = 0; i < types.length; i++) {
+            types[i] = pool.intern(types[i]);
+        }
+        return pool.intern(this);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof ArgumentSignature other && hash == other.hash && Arrays.equals(types, other.types);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + String.join(",", types) + ")";
+    }
+}
@@ -0,0 +1,510 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextPointer;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.config.Configuration;
+import org.sonar.java.model.JavaVersionImpl;
+
+/**
+ * Command line entry point running the Custom Deprecation rule over a source tree without a SonarQube server.
+ * The rule parameters and the scanner properties of the plugin are given as options, so a local or pre-commit
+ * run matches the same catalog with the same semantics as the analysis. Issues are printed one per line as
+ * {@code path:line:column: message} as soon as their file is analyzed.
+ * The process exits with {@value #EXIT_CLEAN} when no issue is found, {@value #EXIT_ISSUES} when issues are
+ * found and {@value #EXIT_ERROR} on invalid options or files that could not be analyzed.
+ */
+public final class BatchAnalyzer {
+
+    static final int EXIT_CLEAN = 0;
+
+    static final int EXIT_ISSUES = 1;
+
+    static final int EXIT_ERROR = 2;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: BatchAnalyzer [options] <source file or directory>...",
+        "  --apis <file>          JSON file in the format of the deprecatedApis rule parameter",
+        "  --match-inherited      same as the matchInherited rule parameter",
+        "  --issue-aggregation <NONE|FILE>",
+        "                         same as the issueAggregation rule parameter, default NONE",
+        "  --max-issues-per-api <n>",
+        "                         same as the maxIssuesPerApi rule parameter, default no limit",
+        "  --classpath <paths>    compiled classes and jars of the sources, separated by '" + File.pathSeparator + "'",
+        "  --sourcepath <paths>   source roots the sources are resolved against, separated by '" + File.pathSeparator + "',",
+        "                         default the source directories given",
+        "  --java-version <n>     Java version of the sources, default 17",
+        "  --encoding <charset>   encoding of the sources, default UTF-8",
+        "  --threads <n>          number of analysis threads, default the number of processors",
+        "  --output <file>        write the issues to a file instead of the standard output",
+        "  -D<key>=<value>        scanner property, e.g. -D" + CustomDeprecationSettings.CATALOG_KEY + "=catalog.json");
+
+    private BatchAnalyzer() {
+    }
+
+    /**
+     * Runs the analysis and exits with its status.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the analysis.
+     *
+     * @param args the command line arguments
+     * @param out the stream issues are written to unless an output file is given
+     * @param err the stream usage errors and the summary are written to
+     * @return the exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        List<InputFile> files;
+        try {
+            options = Options.parse(args);
+            files = sourceFiles(options.sources(), options.encoding());
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_ERROR;
+        } catch (IOException e) {
+            err.println("Cannot read " + e.getMessage());
+            return EXIT_ERROR;
+        }
+        CustomDeprecationSettings.publish(CustomDeprecationSettings.from(new MapConfiguration(options.properties())));
+        long start = System.nanoTime();
+        ParallelScanEngine.Summary summary;
+        try (PrintStream output = options.output() == null ? null : new PrintStream(openOutput(options.output()), false, StandardCharsets.UTF_8)) {
+            PrintStream target = output == null ? out : output;
+            ParallelScanEngine engine = new ParallelScanEngine(() -> newCheck(options), new JavaVersionImpl(options.javaVersion()),
+                options.classpath(), options.sourcepath(), options.encoding(), null, options.threads());
+            summary = engine.scan(files, (file, issues) -> {
+                for (ParallelScanEngine.Issue issue : issues) {
+                    String location = issue.line() == 0 ? "" : ":" + issue.line() + ":" + (issue.column() + 1);
+                    target.println(file.key() + location + ": " + issue.message());
+                }
+            });
+            target.flush();
+        } catch (IOException e) {
+            err.println("Cannot write " + options.output() + ": " + e.getMessage());
+            return EXIT_ERROR;
+        } finally {
+            CustomDeprecationSettings.publish(null);
+        }
+        err.printf("Custom Deprecation: %d files analyzed in %d ms with %d threads, %d issues, %d files failed.%n",
+            summary.files() - summary.failedFiles(), (System.nanoTime() - start) / 1_000_000, options.threads(),
+            summary.issues(), summary.failedFiles());
+        if (summary.failedFiles() > 0) {
+            return EXIT_ERROR;
+        }
+        return summary.issues() > 0 ? EXIT_ISSUES : EXIT_CLEAN;
+    }
+
+    private static OutputStream openOutput(Path output) throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return Files.newOutputStream(output);
+    }
+
+    private static CustomDeprecationCheck newCheck(Options options) {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = options.deprecatedApis();
+        check.matchInherited = options.matchInherited();
+        check.issueAggregation = options.issueAggregation();
+        check.maxIssuesPerApi = options.maxIssuesPerApi();
+        return check;
+    }
+
+    private static List<InputFile> sourceFiles(List<Path> sources, Charset encoding) throws IOException {
+        Path workingDirectory = Paths.get("").toAbsolutePath();
+        List<InputFile> files = new ArrayList<>();
+        for (Path source : sources) {
+            if (Files.isDirectory(source)) {
+                try (Stream<Path> paths = Files.walk(source)) {
+                    for (Path path : paths.filter(Files::isRegularFile).filter(p -> p.toString().endsWith(".java")).sorted().toList()) {
+                        files.add(new SourceFile(path, workingDirectory, encoding));
+                    }
+                }
+            } else if (Files.isRegularFile(source)) {
+                files.add(new SourceFile(source, workingDirectory, encoding));
+            } else {
+                throw new IllegalArgumentException("No such source file or directory: " + source);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Parsed command line options.
+     *
+     * @param deprecatedApis the deprecatedApis rule parameter value
+     * @param matchInherited the matchInherited rule parameter value
+     * @param issueAggregation the issueAggregation rule parameter value
+     * @param maxIssuesPerApi the maxIssuesPerApi rule parameter value
+     * @param classpath the compiled classes and jars of the sources
+     * @param sourcepath the source roots the sources are resolved against
+     * @param javaVersion the Java version of the sources
+     * @param encoding the encoding of the sources
+     * @param threads the number of analysis threads
+     * @param output the file issues are written to, or null for the standard output
+     * @param properties the scanner properties
+     * @param sources the source files and directories
+     */
+    record Options(String deprecatedApis, boolean matchInherited, String issueAggregation, int maxIssuesPerApi,
+        List<File> classpath, List<File> sourcepath, int javaVersion, Charset encoding, int threads, Path output, Map<String, String> properties, List<Path> sources) {
+
+        /**
+         * Parses the command line arguments.
+         *
+         * @param args the arguments
+         * @return the options
+         * @throws IOException if the deprecatedApis file cannot be read
+         * @throws IllegalArgumentException if the arguments are invalid
+         */
+        static Options parse(String[] args) throws IOException {
+            String deprecatedApis = "[]";
+            boolean matchInherited = false;
+            String issueAggregation = "NONE";
+            int maxIssuesPerApi = 0;
+            List<File> classpath = new ArrayList<>();
+            List<File> sourcepath = null;
+            int javaVersion = 17;
+            Charset encoding = StandardCharsets.UTF_8;
+            int threads = Runtime.getRuntime().availableProcessors();
+            Path output = null;
+            Map<String, String> properties = new HashMap<>();
+            properties.put("sonar.projectBaseDir", Paths.get("").toAbsolutePath().toString());
+            List<Path> sources = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--apis" -> deprecatedApis = Files.readString(Paths.get(value(args, ++i, arg)), StandardCharsets.UTF_8);
+                    case "--match-inherited" -> matchInherited = true;
+                    case "--issue-aggregation" -> issueAggregation = aggregation(value(args, ++i, arg), arg);
+                    case "--max-issues-per-api" -> maxIssuesPerApi = number(value(args, ++i, arg), arg);
+                    case "--classpath" -> classpath.addAll(paths(value(args, ++i, arg)));
+                    case "--sourcepath" -> {
+                        sourcepath = sourcepath == null ? new ArrayList<>() : sourcepath;
+                        sourcepath.addAll(paths(value(args, ++i, arg)));
+                    }
+                    case "--java-version" -> javaVersion = number(value(args, ++i, arg), arg);
+                    case "--encoding" -> encoding = Charset.forName(value(args, ++i, arg));
+                    case "--threads" -> threads = number(value(args, ++i, arg), arg);
+                    case "--output" -> output = Paths.get(value(args, ++i, arg));
+                    default -> {
+                        if (arg.startsWith("-D") && arg.indexOf('=') > 2) {
+                            properties.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+                        } else if (arg.startsWith("-")) {
+                            throw new IllegalArgumentException("Unknown option: " + arg);
+                        } else {
+                            sources.add(Paths.get(arg));
+                        }
+                    }
+                }
+            }
+            if (sources.isEmpty()) {
+                throw new IllegalArgumentException("No source file or directory given.");
+            }
+            if (sourcepath == null) {
+                sourcepath = sources.stream().filter(Files::isDirectory).map(Path::toFile).toList();
+            }
+            return new Options(deprecatedApis, matchInherited, issueAggregation, maxIssuesPerApi, classpath, sourcepath,
+                javaVersion, encoding, threads, output, properties, sources);
+        }
+
+        private static List<File> paths(String value) {
+            List<File> paths = new ArrayList<>();
+            for (String entry : value.split(File.pathSeparator)) {
+                if (!entry.isBlank()) {
+                    paths.add(new File(entry.trim()));
+                }
+            }
+            return paths;
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value of " + option);
+            }
+            return args[index];
+        }
+
+        private static String aggregation(String value, String option) {
+            if ("NONE".equals(value) || "FILE".equals(value)) {
+                return value;
+            }
+            throw new IllegalArgumentException("Invalid value of " + option + ": " + value);
+        }
+
+        private static int number(String value, String option) {
+            try {
+                int number = Integer.parseInt(value);
+                if (number > 0) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("Invalid value of " + option + ": " + value);
+        }
+    }
+
+    /**
+     * Source file given on the command line, read from the file system on every access.
+     * Text positions are checked against the lines of the file as {@code sonar-plugin-api} implementations do.
+     */
+    private static final class SourceFile implements InputFile {
+
+        private final Path path;
+        private final String key;
+        private final Charset encoding;
+
+        /** Offsets of the line starts and of the end of the content, read on first use. */
+        private int[] lineOffsets;
+
+        SourceFile(Path file, Path workingDirectory, Charset encoding) {
+            this.path = file.toAbsolutePath().normalize();
+            this.key = path.startsWith(workingDirectory) ? workingDirectory.relativize(path).toString() : path.toString();
+            this.encoding = encoding;
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+
+        @Override
+        public boolean isFile() {
+            return true;
+        }
+
+        @Override
+        @Deprecated
+        public String relativePath() {
+            return key;
+        }
+
+        @Override
+        @Deprecated
+        public String absolutePath() {
+            return path.toString();
+        }
+
+        @Override
+        @Deprecated
+        public File file() {
+            return path.toFile();
+        }
+
+        @Override
+        @Deprecated
+        public Path path() {
+            return path;
+        }
+
+        @Override
+        public URI uri() {
+            return path.toUri();
+        }
+
+        @Override
+        public String filename() {
+            return path.getFileName().toString();
+        }
+
+        @Override
+        public String language() {
+            return "java";
+        }
+
+        @Override
+        public Type type() {
+            return Type.MAIN;
+        }
+
+        @Override
+        public InputStream inputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public String contents() throws IOException {
+            return Files.readString(path, encoding);
+        }
+
+        @Override
+        public Status status() {
+            // there is no previous analysis to compare with
+            return Status.ADDED;
+        }
+
+        @Override
+        public int lines() {
+            return lineOffsets().length - 1;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return lineOffsets().length == 2 && lineOffsets()[1] == 0;
+        }
+
+        @Override
+        public TextPointer newPointer(int line, int lineOffset) {
+            int[] offsets = lineOffsets();
+            if (line < 1 || line >= offsets.length) {
+                throw new IllegalArgumentException(line + " is not a valid line for " + key + ", which has " + lines() + " lines");
+            }
+            if (lineOffset < 0 || lineOffset > offsets[line] - offsets[line - 1]) {
+                throw new IllegalArgumentException(lineOffset + " is not a valid offset for line " + line + " of " + key);
+            }
+            return new Pointer(line, lineOffset);
+        }
+
+        @Override
+        public TextRange newRange(TextPointer start, TextPointer end) {
+            if (start.compareTo(end) >= 0) {
+                throw new IllegalArgumentException("Start " + start + " must be before end " + end);
+            }
+            return new Range(start, end);
+        }
+
+        @Override
+        public TextRange newRange(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+            return newRange(newPointer(startLine, startLineOffset), newPointer(endLine, endLineOffset));
+        }
+
+        @Override
+        public TextRange selectLine(int line) {
+            int[] offsets = lineOffsets();
+            TextPointer start = newPointer(line, 0);
+            return new Range(start, newPointer(line, offsets[line] - offsets[line - 1]));
+        }
+
+        @Override
+        public Charset charset() {
+            return encoding;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SourceFile file && path.equals(file.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+
+        /**
+         * Gets the cumulated lengths of the lines without their terminators, from 0 for no line: the length of
+         * line n is the difference between the entries n and n - 1.
+         */
+        private int[] lineOffsets() {
+            if (lineOffsets == null) {
+                String content;
+                try {
+                    content = contents();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                String[] lines = content.split("\\r\\n|\\n|\\r", -1);
+                int[] offsets = new int[lines.length + 1];
+                for (int i = 0; i < lines.length; i++) {
+                    offsets[i + 1] = offsets[i] + lines[i].length();
+                }
+                lineOffsets = offsets;
+            }
+            return lineOffsets;
+        }
+    }
+
+    /**
+     * Position in a source file.
+     *
+     * @param line the line, from 1
+     * @param lineOffset the offset in the line, from 0
+     */
+    private record Pointer(int line, int lineOffset) implements TextPointer {
+
+        @Override
+        public int compareTo(TextPointer other) {
+            return line != other.line() ? Integer.compare(line, other.line())
+                : Integer.compare(lineOffset, other.lineOffset());
+        }
+
+        @Override
+        public String toString() {
+            return "[line=" + line + ", lineOffset=" + lineOffset + "]";
+        }
+    }
+
+    /**
+     * Range of a source file.
+     *
+     * @param start the start, inclusive
+     * @param end the end, exclusive
+     */
+    private record Range(TextPointer start, TextPointer end) implements TextRange {
+
+        @Override
+        public boolean overlap(TextRange other) {
+            return end.compareTo(other.start()) > 0 && other.end().compareTo(start) > 0;
+        }
+    }
+
+    /**
+     * Scanner configuration read from the {@code -D} options.
+     */
+    static final class MapConfiguration implements Configuration {
+
+        private final Map<String, String> properties;
+
+        MapConfiguration(Map<String, String> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public Optional<String> get(String key) {
+            return Optional.ofNullable(properties.get(key));
+        }
+
+        @Override
+        public boolean hasKey(String key) {
+            return properties.containsKey(key);
+        }
+
+        @Override
+        public String[] getStringArray(String key) {
+            String value = properties.get(key);
+            return value == null || value.isBlank() ? new String[0] : value.split(",");
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Pre-scan of the compiled classes of the project, telling which source files can reference a
+ * configured API before their syntax trees are visited.
+ * Class files and jars of the binaries directories are read in parallel with {@link ClassFileReader},
+ * and every class is attributed to its source file by package and {@code SourceFile} attribute.
+ *
+ * <p>A class has a hit if it references a constructor of a configured type, or any method or field
+ * whose name is configured. Member names are matched regardless of their owner because the compiler
+ * records the type a member was accessed through, which can be a subtype of the configured type.</p>
+ *
+ * <p>Compile-time constant fields are inlined by the compiler and leave no reference. The classes of the
+ * configured types, among the binaries and the libraries, are read for fields with a {@code ConstantValue}
+ * attribute, and if any configured field is such a constant the result lets every file through, so that the
+ * syntax tree prefilter decides alone.</p>
+ */
+final class BytecodePrescan {
+
+    private static final Logger LOG = Loggers.get(BytecodePrescan.class);
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String CONSTRUCTOR = "<init>";
+
+    private final Map<String, SourceState> sources;
+    private final boolean complete;
+    private final String configuredConstant;
+
+    private BytecodePrescan(Map<String, SourceState> sources, boolean complete, String configuredConstant) {
+        this.sources = sources;
+        this.complete = complete;
+        this.configuredConstant = configuredConstant;
+    }
+
+    /**
+     * Scans the given binaries directories and jars, and the classes of the configured types among the libraries.
+     * If any class cannot be read, its source file or its constants are unknown, so the result lets every file
+     * through.
+     *
+     * @param roots the directories and jars to scan
+     * @param libraries the library directories and jars, only read for the constants of the configured types
+     * @param matcher the matcher of the configured APIs
+     * @return the scan result
+     */
+    static BytecodePrescan scan(List<Path> roots, List<Path> libraries, DeprecatedApiMatcher matcher) {
+        List<Path> units = new ArrayList<>();
+        List<Path> libraryUnits = new ArrayList<>();
+        boolean listed = list(roots, null, units) & list(libraries, matcher, libraryUnits);
+        Map<String, SourceState> sources = new ConcurrentHashMap<>();
+        Map<String, Boolean> constants = new ConcurrentHashMap<>();
+        boolean complete = units.parallelStream()
+            .map(unit -> scanUnit(unit, null, matcher, sources, constants))
+            .reduce(true, Boolean::logicalAnd);
+        boolean librariesComplete = libraryUnits.parallelStream()
+            .map(unit -> scanUnit(unit, matcher, matcher, null, constants))
+            .reduce(true, Boolean::logicalAnd);
+        String configuredConstant = constants.keySet().stream().sorted().findFirst().orElse(null);
+        return new BytecodePrescan(sources, listed && complete && librariesComplete, configuredConstant);
+    }
+
+    /**
+     * Checks whether a source file can reference a configured API.
+     *
+     * @param sourceKey the source file key, see {@link #sourceKey(String, String)}
+     * @param sourceLastModified the last modification time of the source file in milliseconds
+     * @return false only if no configured field is a compile-time constant, and all classes of the file were
+     *     scanned, are newer than the file and have no hit
+     */
+    boolean mayReference(String sourceKey, long sourceLastModified) {
+        if (!complete || configuredConstant != null) {
+            return true;
+        }
+        SourceState state = sources.get(sourceKey);
+        return state == null || state.hit || state.oldestClass < sourceLastModified;
+    }
+
+    /**
+     * Gets the number of source files with at least one scanned class.
+     *
+     * @return the number of scanned source files
+     */
+    int scannedSources() {
+        return sources.size();
+    }
+
+    /**
+     * Gets the number of scanned source files whose classes have a hit.
+     *
+     * @return the number of source files with a hit
+     */
+    int sourcesWithHits() {
+        return (int) sources.values().stream().filter(state -> state.hit).count();
+    }
+
+    /**
+     * Gets a configured field that is a compile-time constant, whose references cannot be found in bytecode.
+     *
+     * @return the first such field as {@code fqcn#member}, or null if no configured field is a constant
+     */
+    String configuredConstant() {
+        return configuredConstant;
+    }
+
+    /**
+     * Checks whether every class was read.
+     *
+     * @return false if the scan failed on at least one class or jar
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Builds the key identifying a source file.
+     *
+     * @param packageName the package name, null or empty for the default package
+     * @param fileName the file name, e.g. {@code Foo.java}
+     * @return the key, e.g. {@code com/example/Foo.java}
+     */
+    static String sourceKey(String packageName, String fileName) {
+        if (packageName == null || packageName.isEmpty()) {
+            return fileName;
+        }
+        return packageName.replace('.', '/') + '/' + fileName;
+    }
+
+    private static boolean isScannable(Path path) {
+        String name = path.getFileName() == null ? "" : path.getFileName().toString();
+        return Files.isRegularFile(path) && (name.endsWith(CLASS_SUFFIX) || name.endsWith(".jar"));
+    }
+
+    private static boolean list(List<Path> roots, DeprecatedApiMatcher typeFilter, List<Path> units) {
+        boolean listed = true;
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> files = Files.walk(root)) {
+                    files.filter(BytecodePrescan::isScannable)
+                        .filter(file -> typeFilter == null || !file.toString().endsWith(CLASS_SUFFIX)
+                            || typeFilter.bucket(className(root.relativize(file).toString().replace('\\', '/'))) != null)
+                        .forEach(units::add);
+                } catch (IOException | UncheckedIOException e) {
+                    LOG.warn("Failed to list the classes of " + root + "; every source file is analyzed.", e);
+                    listed = false;
+                }
+            } else if (isScannable(root)) {
+                units.add(root);
+            }
+        }
+        return listed;
+    }
+
+    /**
+     * Scans a class file or a jar.
+     *
+     * @param unit the class file or jar
+     * @param typeFilter if not null, only the classes of the types it has entries for are read, e.g. in libraries
+     * @param matcher the matcher of the configured APIs
+     * @param sources receives the hits by source file, or null to only collect the constants
+     * @param constants receives the configured fields that are compile-time constants
+     * @return false if the unit could not be read or is corrupt
+     */
+    private static boolean scanUnit(Path unit, DeprecatedApiMatcher typeFilter, DeprecatedApiMatcher matcher,
+        Map<String, SourceState> sources, Map<String, Boolean> constants) {
+        try {
+            if (unit.getFileName().toString().endsWith(CLASS_SUFFIX)) {
+                scanClass(Files.readAllBytes(unit), Files.getLastModifiedTime(unit).toMillis(), matcher, sources,
+                    constants);
+                return true;
+            }
+            try (ZipFile jar = new ZipFile(unit.toFile())) {
+                Enumeration<? extends ZipEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().endsWith(CLASS_SUFFIX)
+                        && (typeFilter == null || typeFilter.bucket(className(entry.getName())) != null)) {
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            scanClass(in.readAllBytes(), entry.getTime(), matcher, sources, constants);
+                        }
+                    }
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // a corrupt class file can point anywhere in its constant pool
+            LOG.warn("Failed to pre-scan " + unit + "; every source file is analyzed.", e);
+            return false;
+        }
+    }
+
+    private static void scanClass(byte[] bytes, long lastModified, DeprecatedApiMatcher matcher,
+        Map<String, SourceState> sources, Map<String, Boolean> constants) throws IOException {
+        ClassFileReader.ClassFile classFile = ClassFileReader.read(bytes);
+        for (String constant : classFile.constants()) {
+            if (matcher.find(classFile.name(), constant) != null) {
+                constants.put(classFile.name() + '#' + constant, Boolean.TRUE);
+            }
+        }
+        if (sources == null) {
+            return;
+        }
+        boolean hit = false;
+        for (ClassFileReader.MemberRef reference : classFile.references()) {
+            if (isHit(reference, matcher)) {
+                hit = true;
+                break;
+            }
+        }
+        boolean classHit = hit;
+        sources.compute(sourceKey(classFile), (key, state) -> state == null
+            ? new SourceState(classHit, lastModified)
+            : new SourceState(state.hit || classHit, Math.min(state.oldestClass, lastModified)));
+    }
+
+    private static boolean isHit(ClassFileReader.MemberRef reference, DeprecatedApiMatcher matcher) {
+        if (CONSTRUCTOR.equals(reference.name())) {
+            return matcher.find(reference.owner(), CONSTRUCTOR) != null;
+        }
+        return matcher.isConfiguredMember(reference.name());
+    }
+
+    private static String className(String entryName) {
+        return entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()).replace('/', '.');
+    }
+
+    private static String sourceKey(ClassFileReader.ClassFile classFile) {
+        String name = classFile.name();
+        int lastDot = name.lastIndexOf('.');
+        String packageName = lastDot < 0 ? null : name.substring(0, lastDot);
+        String sourceFile = classFile.sourceFile();
+        if (sourceFile == null) {
+            String simpleName = name.substring(lastDot + 1);
+            int nested = simpleName.indexOf('$');
+            sourceFile = (nested < 0 ? simpleName : simpleName.substring(0, nested)) + ".java";
+        }
+        return sourceKey(packageName, sourceFile);
+    }
+
+    private record SourceState(boolean hit, long oldestClass) {
+    }
+}
@@ -0,0 +1,371 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Compiles staged catalog entries into the indexes of a {@link DeprecatedApiMatcher}.
+ * Large catalogs are split once by fqcn hash and the partitions are compiled on the common
+ * fork-join pool: each one validates and normalizes its entries into its own {@link StringPool}.
+ * The pools are then merged, and each partition swaps its text for the merged instances and
+ * indexes its entries. Since a fqcn always falls in the same partition, the partial indexes are
+ * disjoint and merged without re-indexing.
+ *
+ * <p>Validation is done here only: readers stage every entry they can read, with the problem of those
+ * they cannot. It reports entries that are unreadable or whose fqcn, member or arguments are missing or
+ * malformed, which are left out, and entries that can never match because an earlier entry takes
+ * precedence: duplicates carry the same message, conflicts a different one. Every warning names the
+ * entries by their {@link Origin}.</p>
+ */
+final class CatalogCompiler {
+
+    private static final Logger LOG = Loggers.get(CatalogCompiler.class);
+
+    /** Catalogs up to this size are compiled on the calling thread. */
+    static final int PARTITION_SIZE = 4096;
+
+    private static final int MAX_REPORTED_ENTRIES = 50;
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    /** Source of the entries added without one. */
+    static final String CONFIGURATION = "configuration";
+
+    /**
+     * Position of an entry in the input it was read from, naming the entry in warnings.
+     *
+     * @param source the input, e.g. the rule parameter or a catalog
+     * @param index the 0-based position of the entry in the input
+     */
+    record Origin(String source, int index) {
+
+        @Override
+        public String toString() {
+            return "#" + (index + 1) + " of " + source;
+        }
+    }
+
+    /**
+     * Configuration entry staged by {@link DeprecatedApiMatcher.Builder}.
+     *
+     * @param order the position of the entry in the configuration
+     * @param origin the position of the entry in the input it was read from
+     * @param fqcn the fully qualified class name or fqcn pattern
+     * @param member the member name or member pattern
+     * @param arguments the source-style argument list, null or empty for all overloads
+     * @param migration the migration message
+     * @param note the note
+     * @param message the issue message template, or null
+     * @param problem why the entry could not be read, or null if it was read
+     */
+    record Entry(int order, Origin origin, String fqcn, String member, String arguments, String migration, String note,
+        String message, String problem) {
+
+        /**
+         * Creates a readable entry added without an input, named by its order.
+         *
+         * @param order the position of the entry in the configuration
+         * @param fqcn the fully qualified class name or fqcn pattern
+         * @param member the member name or member pattern
+         * @param arguments the source-style argument list, null or empty for all overloads
+         * @param migration the migration message
+         * @param note the note
+         * @param message the issue message template, or null
+         */
+        Entry(int order, String fqcn, String member, String arguments, String migration, String note, String message) {
+            this(order, new Origin(CONFIGURATION, order), fqcn, member, arguments, migration, note, message, null);
+        }
+    }
+
+    /**
+     * Compiled catalog.
+     *
+     * @param apis the well-formed entries in configuration order, shadowed ones included
+     * @param index the entries of exact fqcns
+     * @param patterns the entries of fqcn patterns
+     * @param malformedEntries the number of entries left out because they are malformed
+     * @param duplicateEntries the number of entries repeating an earlier entry
+     * @param conflictingEntries the number of entries hidden by an earlier entry with another message
+     * @param warnings the warnings about the entries in configuration order, including those not logged
+     */
+    record Result(List<DeprecatedApi> apis, Map<String, DeprecatedApiMatcher.TypeEntry> index, TypePatternTrie patterns,
+        int malformedEntries, int duplicateEntries, int conflictingEntries, List<String> warnings) {
+    }
+
+    private CatalogCompiler() {
+    }
+
+    /**
+     * Compiles the given entries.
+     *
+     * @param entries the entries in configuration order
+     * @return the compiled catalog
+     */
+    static Result compile(List<Entry> entries) {
+        Map<Integer, Origin> origins = new HashMap<>();
+        for (Entry entry : entries) {
+            origins.put(entry.order(), entry.origin());
+        }
+        List<List<Entry>> split = split(entries, partitions(entries.size()));
+        List<Partition> compiled;
+        if (split.size() == 1) {
+            Partition partition = new Partition(origins);
+            partition.addAll(split.get(0));
+            partition.index(partition.pool);
+            compiled = List.of(partition);
+        } else {
+            compiled = split.parallelStream().map(partitionEntries -> {
+                Partition partition = new Partition(origins);
+                partition.addAll(partitionEntries);
+                return partition;
+            }).collect(Collectors.toList());
+            StringPool pool = compiled.get(0).pool;
+            for (int i = 1; i < compiled.size(); i++) {
+                pool.merge(compiled.get(i).pool);
+            }
+            compiled.parallelStream().forEach(partition -> partition.index(pool));
+        }
+        Partition merged = new Partition(origins);
+        Map<String, DeprecatedApiMatcher.TypeEntry> index = new HashMap<>();
+        List<DeprecatedApi> apis = new ArrayList<>();
+        List<DeprecatedApi> patternApis = new ArrayList<>();
+        for (Partition partition : compiled) {
+            index.putAll(partition.index);
+            apis.addAll(partition.apis);
+            patternApis.addAll(partition.patternApis);
+            merged.absorbProblems(partition);
+        }
+        apis.sort(Comparator.comparingInt(DeprecatedApi::order));
+        // patterns are few: they are indexed on this thread, in configuration order
+        patternApis.sort(Comparator.comparingInt(DeprecatedApi::order));
+        TypePatternTrie patterns = new TypePatternTrie();
+        for (DeprecatedApi api : patternApis) {
+            merged.checkShadowing(api, patterns.entryFor(api.fqcn()).add(api));
+        }
+        List<String> warnings = merged.logProblems();
+        return new Result(apis, index, patterns, merged.malformed, merged.duplicates, merged.conflicts, warnings);
+    }
+
+    /**
+     * Indexes entries compiled by an earlier call to {@link #compile(List)}, without validating them again.
+     *
+     * @param apis the entries in configuration order
+     * @return the compiled catalog
+     */
+    static Result index(List<DeprecatedApi> apis) {
+        Map<String, DeprecatedApiMatcher.TypeEntry> index = new HashMap<>();
+        TypePatternTrie patterns = new TypePatternTrie();
+        for (DeprecatedApi api : apis) {
+            if (ApiPattern.isPattern(api.fqcn())) {
+                patterns.entryFor(api.fqcn()).add(api);
+            } else {
+                index.computeIfAbsent(api.fqcn(), k -> new DeprecatedApiMatcher.TypeEntry()).add(api);
+            }
+        }
+        return new Result(apis, index, patterns, 0, 0, 0, List.of());
+    }
+
+    private static int partitions(int size) {
+        if (size <= PARTITION_SIZE) {
+            return 1;
+        }
+        return Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() + 1, size / PARTITION_SIZE));
+    }
+
+    private static List<List<Entry>> split(List<Entry> entries, int partitions) {
+        if (partitions == 1) {
+            return List.of(entries);
+        }
+        List<List<Entry>> split = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            split.add(new ArrayList<>(entries.size() / partitions + 1));
+        }
+        for (Entry entry : entries) {
+            // unreadable entries and entries without a fqcn are reported by the first partition
+            split.get(entry.fqcn() == null ? 0 : Math.floorMod(entry.fqcn().hashCode(), partitions)).add(entry);
+        }
+        return split;
+    }
+
+    /**
+     * Checks whether a fqcn is a dotted sequence of identifiers, possibly with wildcards.
+     *
+     * @param fqcn the fqcn or fqcn pattern
+     * @return true if the fqcn is well formed
+     */
+    static boolean isWellFormedType(String fqcn) {
+        for (String segment : fqcn.split("\\.", -1)) {
+            if (!ApiPattern.ANY_SEGMENTS.equals(segment) && !isWellFormedName(segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a member is {@code <init>} or an identifier, possibly with wildcards.
+     *
+     * @param member the member or member pattern
+     * @return true if the member is well formed
+     */
+    static boolean isWellFormedMember(String member) {
+        return CONSTRUCTOR.equals(member) || isWellFormedName(member);
+    }
+
+    private static boolean isWellFormedName(String name) {
+        if (name.isEmpty() || !(Character.isJavaIdentifierStart(name.charAt(0)) || name.charAt(0) == '*')) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isJavaIdentifierPart(c) && c != '*') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Partition {
+        private final StringPool pool = new StringPool();
+        private final Map<String, DeprecatedApiMatcher.TypeEntry> index = new HashMap<>();
+        private final List<DeprecatedApi> apis = new ArrayList<>();
+        private final List<DeprecatedApi> patternApis = new ArrayList<>();
+        private final List<Problem> problems = new ArrayList<>();
+        private int malformed;
+        private int duplicates;
+        private int conflicts;
+
+        /** Origins of the entries of every partition by order, only read. */
+        private final Map<Integer, Origin> origins;
+
+        private Partition(Map<Integer, Origin> origins) {
+            this.origins = origins;
+        }
+
+        private void addAll(List<Entry> entries) {
+            for (Entry entry : entries) {
+                add(entry);
+            }
+        }
+
+        private void add(Entry entry) {
+            if (entry.problem() != null) {
+                malformed(entry, entry.problem());
+                return;
+            }
+            if (entry.fqcn() == null || entry.fqcn().isEmpty()) {
+                malformed(entry, "missing fqcn");
+                return;
+            }
+            if (!isWellFormedType(entry.fqcn())) {
+                malformed(entry, "malformed fqcn '" + entry.fqcn() + "'");
+                return;
+            }
+            if (entry.member() == null || entry.member().isEmpty()) {
+                malformed(entry, "missing member");
+                return;
+            }
+            if (!isWellFormedMember(entry.member())) {
+                malformed(entry, "malformed member '" + entry.member() + "'");
+                return;
+            }
+            ArgumentSignature signature = null;
+            if (entry.arguments() != null && !entry.arguments().isEmpty()) {
+                signature = ArgumentSignature.parse(entry.arguments());
+                if (signature == null) {
+                    malformed(entry, "arguments '" + entry.arguments() + "' are not enclosed in parentheses");
+                    return;
+                }
+                signature = signature.intern(pool);
+            }
+            IssueMessage message = pool.intern(IssueMessage.compile(entry.message(), entry.fqcn(), entry.member(),
+                signature, entry.migration(), entry.note()));
+            DeprecatedApi api = new DeprecatedApi(entry.order(), pool.intern(entry.fqcn()), pool.intern(entry.member()),
+                signature, pool.intern(entry.migration()), pool.intern(entry.note()), message);
+            apis.add(api);
+        }
+
+        /**
+         * Swaps the text of the entries for the instances of the merged pool, then indexes them.
+         *
+         * @param merged the pool merged from every partition, only read
+         */
+        private void index(StringPool merged) {
+            for (int i = 0; i < apis.size(); i++) {
+                DeprecatedApi api = merged == pool ? apis.get(i) : canonical(apis.get(i), merged);
+                apis.set(i, api);
+                if (ApiPattern.isPattern(api.fqcn())) {
+                    patternApis.add(api);
+                    continue;
+                }
+                DeprecatedApiMatcher.TypeEntry type = index.computeIfAbsent(api.fqcn(), k -> new DeprecatedApiMatcher.TypeEntry());
+                checkShadowing(api, type.add(api));
+            }
+        }
+
+        private static DeprecatedApi canonical(DeprecatedApi api, StringPool merged) {
+            String member = merged.canonical(api.member());
+            ArgumentSignature signature = merged.canonical(api.signature());
+            String migration = merged.canonical(api.migration());
+            String note = merged.canonical(api.note());
+            IssueMessage message = merged.canonical(api.message());
+            if (member == api.member() && signature == api.signature() && migration == api.migration()
+                && note == api.note() && message == api.message()) {
+                return api;
+            }
+            // the fqcn only occurs in this partition
+            return new DeprecatedApi(api.order(), api.fqcn(), member, signature, migration, note, message);
+        }
+
+        private void malformed(Entry entry, String problem) {
+            malformed++;
+            problems.add(new Problem(entry.order(), "Ignoring entry " + entry.origin() + ": " + problem + "."));
+        }
+
+        private void checkShadowing(DeprecatedApi api, DeprecatedApi shadowing) {
+            if (shadowing == null) {
+                return;
+            }
+            if (shadowing.message().equals(api.message())) {
+                duplicates++;
+                problems.add(new Problem(api.order(), "Entry " + origins.get(api.order()) + " duplicates entry "
+                    + origins.get(shadowing.order()) + "."));
+            } else {
+                conflicts++;
+                problems.add(new Problem(api.order(), "Entry " + origins.get(api.order()) + " never matches: entry "
+                    + origins.get(shadowing.order()) + " targets the same API with another message and takes precedence."));
+            }
+        }
+
+        private void absorbProblems(Partition partition) {
+            problems.addAll(partition.problems);
+            malformed += partition.malformed;
+            duplicates += partition.duplicates;
+            conflicts += partition.conflicts;
+        }
+
+        private List<String> logProblems() {
+            if (problems.isEmpty()) {
+                return List.of();
+            }
+            problems.sort(Comparator.comparingInt(Problem::order));
+            problems.stream().limit(MAX_REPORTED_ENTRIES).forEach(problem -> LOG.warn(problem.message()));
+            if (problems.size() > MAX_REPORTED_ENTRIES) {
+                LOG.warn("{} malformed, {} duplicate and {} conflicting configuration entries in total.",
+                    malformed, duplicates, conflicts);
+            }
+            return problems.stream().map(Problem::message).collect(Collectors.toList());
+        }
+    }
+
+    private record Problem(int order, String message) {
+    }
+}
@@ -0,0 +1,106 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Location of a deprecated API catalog configured through the
+ * {@value CustomDeprecationSettings#CATALOG_KEY} scanner property.
+ * The catalog is either a file, resolved against the project base directory when relative,
+ * or a resource on the scanner classpath when the value starts with {@value #CLASSPATH_PREFIX}.
+ */
+final class CatalogLocation {
+
+    /** Prefix selecting a classpath resource instead of a file. */
+    static final String CLASSPATH_PREFIX = "classpath:";
+
+    private final Path file;
+    private final String resource;
+
+    private CatalogLocation(Path file, String resource) {
+        this.file = file;
+        this.resource = resource;
+    }
+
+    /**
+     * Resolves the configured catalog location.
+     *
+     * @param value the property value, may be null or blank
+     * @param baseDir the project base directory used for relative paths, may be null
+     * @return the location, or null if no catalog is configured
+     */
+    static CatalogLocation resolve(String value, Path baseDir) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.startsWith(CLASSPATH_PREFIX)) {
+            String resource = trimmed.substring(CLASSPATH_PREFIX.length());
+            return new CatalogLocation(null, resource.startsWith("/") ? resource.substring(1) : resource);
+        }
+        Path path = Paths.get(trimmed);
+        if (!path.isAbsolute() && baseDir != null) {
+            path = baseDir.resolve(path);
+        }
+        return new CatalogLocation(path.toAbsolutePath().normalize(), null);
+    }
+
+    /**
+     * Builds a key identifying the current content of the catalog without reading it.
+     * Files are identified by path, size and modification time; classpath resources by name.
+     *
+     * @return the fingerprint
+     */
+    String fingerprint() {
+        if (file == null) {
+            return CLASSPATH_PREFIX + resource;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return file + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return file + "|missing";
+        }
+    }
+
+    /**
+     * Opens the catalog for streaming.
+     *
+     * @return a buffered reader over the catalog content, to be closed by the caller
+     * @throws IOException if the catalog cannot be found or opened
+     */
+    BufferedReader open() throws IOException {
+        return new BufferedReader(new InputStreamReader(openStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Opens the raw catalog content.
+     *
+     * @return a stream over the catalog bytes, to be closed by the caller
+     * @throws IOException if the catalog cannot be found or opened
+     */
+    InputStream openStream() throws IOException {
+        if (file == null) {
+            InputStream stream = CatalogLocation.class.getClassLoader().getResourceAsStream(resource);
+            if (stream == null) {
+                throw new NoSuchFileException(CLASSPATH_PREFIX + resource);
+            }
+            return stream;
+        }
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public String toString() {
+        return file == null ? CLASSPATH_PREFIX + resource : file.toString();
+    }
+}
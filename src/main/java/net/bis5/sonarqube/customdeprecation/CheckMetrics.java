@@ -0,0 +1,128 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Scan-time counters of a {@link CustomDeprecationCheck} instance.
+ * Every counter is a {@link LongAdder} so that recording stays cheap and safe when files are
+ * analyzed in parallel.
+ */
+final class CheckMetrics {
+
+    /** File name of the JSON report written under the scanner working directory. */
+    static final String REPORT_FILE_PREFIX = "custom-deprecation-metrics";
+
+    private final Map<Tree.Kind, LongAdder> nodes = new EnumMap<>(Tree.Kind.class);
+    private final LongAdder files = new LongAdder();
+    private final LongAdder skippedFiles = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder signatureComparisons = new LongAdder();
+    private final LongAdder issues = new LongAdder();
+    private final LongAdder visitNanos = new LongAdder();
+    private final LongAdder configNanos = new LongAdder();
+
+    CheckMetrics(List<Tree.Kind> kinds) {
+        for (Tree.Kind kind : kinds) {
+            nodes.put(kind, new LongAdder());
+        }
+    }
+
+    void fileStarted(boolean skipped, long configLoadNanos) {
+        files.increment();
+        if (skipped) {
+            skippedFiles.increment();
+        }
+        configNanos.add(configLoadNanos);
+    }
+
+    void nodeVisited(Tree.Kind kind) {
+        LongAdder counter = nodes.get(kind);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    void nodeTimed(long nanos) {
+        visitNanos.add(nanos);
+    }
+
+    void lookup(boolean needsSignature) {
+        lookups.increment();
+        if (needsSignature) {
+            signatureComparisons.increment();
+        }
+    }
+
+    void issueRaised() {
+        issues.increment();
+    }
+
+    /**
+     * Builds the one-line summary logged at the end of the analysis.
+     *
+     * @return the summary line
+     */
+    String summary() {
+        long totalNodes = nodes.values().stream().mapToLong(LongAdder::sum).sum();
+        return "Custom Deprecation: " + files.sum() + " files (" + skippedFiles.sum() + " skipped), "
+            + totalNodes + " nodes " + nodeCounts() + ", "
+            + lookups.sum() + " lookups, "
+            + signatureComparisons.sum() + " signature comparisons, "
+            + issues.sum() + " issues, "
+            + TimeUnit.NANOSECONDS.toMillis(visitNanos.sum()) + " ms in visitNode, "
+            + TimeUnit.NANOSECONDS.toMillis(configNanos.sum()) + " ms loading configuration";
+    }
+
+    /**
+     * Writes the counters as JSON into the given directory, to {@code custom-deprecation-metrics-<module>.json}.
+     *
+     * @param directory the scanner working directory
+     * @param module the key of the analyzed module
+     * @return the written file
+     * @throws IOException if the file cannot be written
+     */
+    Path writeReport(Path directory, String module) throws IOException {
+        JsonObject nodeCounts = new JsonObject();
+        nodes.forEach((kind, counter) -> nodeCounts.addProperty(kind.name(), counter.sum()));
+        JsonObject json = new JsonObject();
+        json.addProperty("files", files.sum());
+        json.addProperty("skippedFiles", skippedFiles.sum());
+        json.add("nodes", nodeCounts);
+        json.addProperty("lookups", lookups.sum());
+        json.addProperty("signatureComparisons", signatureComparisons.sum());
+        json.addProperty("issues", issues.sum());
+        json.addProperty("visitNodeNanos", visitNanos.sum());
+        json.addProperty("configLoadNanos", configNanos.sum());
+
+        Files.createDirectories(directory);
+        Path report = directory.resolve(StoreFiles.moduleFileName(REPORT_FILE_PREFIX, module, ".json"));
+        try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            new Gson().toJson(json, writer);
+        }
+        return report;
+    }
+
+    private String nodeCounts() {
+        StringBuilder counts = new StringBuilder("{");
+        nodes.forEach((kind, counter) -> {
+            if (counts.length() > 1) {
+                counts.append(", ");
+            }
+            counts.append(kind.name()).append('=').append(counter.sum());
+        });
+        return counts.append('}').toString();
+    }
+}
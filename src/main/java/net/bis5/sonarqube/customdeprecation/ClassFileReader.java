@@ -0,0 +1,180 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal class file reader extracting the member references of the constant pool.
+ * Only the constant pool, the names of the constant fields and the {@code SourceFile} attribute are
+ * decoded; method bodies are never parsed, which is enough to know every method, constructor and field
+ * a class can reference, since the JVM resolves them through {@code Methodref}, {@code InterfaceMethodref}
+ * and {@code Fieldref} entries. Compile-time constants are the exception: the compiler inlines their value,
+ * so the fields carrying a {@code ConstantValue} attribute are reported separately.
+ */
+final class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int INTERFACE_METHOD_REF = 11;
+    private static final int NAME_AND_TYPE = 12;
+    private static final int METHOD_HANDLE = 15;
+    private static final int METHOD_TYPE = 16;
+    private static final int DYNAMIC = 17;
+    private static final int INVOKE_DYNAMIC = 18;
+    private static final int MODULE = 19;
+    private static final int PACKAGE = 20;
+
+    /**
+     * Reference to a member of another class, as recorded by the compiler.
+     * The owner is the type the member was accessed through, which may be a subtype of the
+     * type declaring it.
+     *
+     * @param owner the binary name of the owner, e.g. {@code com.example.Outer$Inner}
+     * @param name the member name, {@code <init>} for constructors
+     */
+    record MemberRef(String owner, String name) {
+    }
+
+    /**
+     * Decoded class file.
+     *
+     * @param name the binary name of the class
+     * @param sourceFile the name of the source file, or null if the class was compiled without it
+     * @param references the member references of the constant pool
+     * @param constants the names of the fields declared with a {@code ConstantValue} attribute
+     */
+    record ClassFile(String name, String sourceFile, List<MemberRef> references, List<String> constants) {
+    }
+
+    private ClassFileReader() {
+    }
+
+    /**
+     * Decodes a class file.
+     *
+     * @param bytes the content of the class file
+     * @return the decoded class
+     * @throws IOException if the content is not a valid class file
+     */
+    static ClassFile read(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        // minor and major version
+        in.skipBytes(4);
+        int count = in.readUnsignedShort();
+        int[] tags = new int[count];
+        int[] firstIndex = new int[count];
+        int[] secondIndex = new int[count];
+        String[] utf8 = new String[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+                case UTF8:
+                    utf8[i] = in.readUTF();
+                    break;
+                case CLASS, STRING, METHOD_TYPE, MODULE, PACKAGE:
+                    firstIndex[i] = in.readUnsignedShort();
+                    break;
+                case FIELD_REF, METHOD_REF, INTERFACE_METHOD_REF, NAME_AND_TYPE, DYNAMIC, INVOKE_DYNAMIC:
+                    firstIndex[i] = in.readUnsignedShort();
+                    secondIndex[i] = in.readUnsignedShort();
+                    break;
+                case INTEGER, FLOAT:
+                    in.skipBytes(4);
+                    break;
+                case LONG, DOUBLE:
+                    in.skipBytes(8);
+                    // 8-byte constants take two entries
+                    i++;
+                    break;
+                case METHOD_HANDLE:
+                    in.skipBytes(3);
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+        List<MemberRef> references = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            if (tags[i] == FIELD_REF || tags[i] == METHOD_REF || tags[i] == INTERFACE_METHOD_REF) {
+                String owner = className(utf8[firstIndex[firstIndex[i]]]);
+                String name = utf8[firstIndex[secondIndex[i]]];
+                references.add(new MemberRef(owner, name));
+            }
+        }
+        // access flags
+        in.skipBytes(2);
+        String name = className(utf8[firstIndex[in.readUnsignedShort()]]);
+        // super class
+        in.skipBytes(2);
+        in.skipBytes(2 * in.readUnsignedShort());
+        List<String> constants = readConstantFields(in, utf8);
+        skipMembers(in);
+        String sourceFile = null;
+        int attributes = in.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            String attributeName = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("SourceFile".equals(attributeName)) {
+                sourceFile = utf8[in.readUnsignedShort()];
+            } else {
+                in.skipBytes(length);
+            }
+        }
+        return new ClassFile(name, sourceFile, references, constants);
+    }
+
+    private static List<String> readConstantFields(DataInputStream in, String[] utf8) throws IOException {
+        List<String> constants = new ArrayList<>();
+        int fields = in.readUnsignedShort();
+        for (int i = 0; i < fields; i++) {
+            // access flags
+            in.skipBytes(2);
+            String name = utf8[in.readUnsignedShort()];
+            // descriptor
+            in.skipBytes(2);
+            int attributes = in.readUnsignedShort();
+            for (int j = 0; j < attributes; j++) {
+                String attributeName = utf8[in.readUnsignedShort()];
+                in.skipBytes(in.readInt());
+                if ("ConstantValue".equals(attributeName)) {
+                    constants.add(name);
+                }
+            }
+        }
+        return constants;
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int members = in.readUnsignedShort();
+        for (int i = 0; i < members; i++) {
+            // access flags, name and descriptor
+            in.skipBytes(6);
+            int attributes = in.readUnsignedShort();
+            for (int j = 0; j < attributes; j++) {
+                in.skipBytes(2);
+                in.skipBytes(in.readInt());
+            }
+        }
+    }
+
+    private static String className(String internalName) {
+        return internalName == null ? null : internalName.replace('/', '.');
+    }
+}
@@ -0,0 +1,339 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Directory of compiled catalogs persisted across analyses.
+ * A compiled matcher is written as a compact binary file named after the SHA-256 hash of the
+ * {@code deprecatedApis} value, of the catalog content and of the plugin version, so a later analysis
+ * with the same configuration and plugin reads the file and restores the matcher without parsing JSON,
+ * validating entries or compiling messages. The file is read at once rather than memory-mapped, since
+ * every string is copied to the heap and the indexes are rebuilt anyway.
+ *
+ * <p>The file holds a table of distinct strings, then tables of signatures and messages referring to
+ * strings by index, then the entries referring to all three. Repeated text is therefore stored and
+ * restored once, which also gives the restored catalog the sharing of a {@link StringPool}. Placeholders
+ * are stored by their {@linkplain IssueMessage.Placeholder#code() code}, not by their position. Files are
+ * written to a temporary name and moved into place, so concurrent analyses never read a partial file.
+ * A file that cannot be read is ignored and replaced.</p>
+ */
+final class CompiledCatalogStore {
+
+    private static final Logger LOG = Loggers.get(CompiledCatalogStore.class);
+
+    private static final int MAGIC = 0x43444350;
+
+    /** Version of the file format, also part of the key so that an upgrade never reads an older layout. */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Version of the plugin, filtered into {@code plugin.properties} by the build, also part of the key so that
+     * an upgrade never restores a catalog compiled by an older release.
+     */
+    static final String PLUGIN_VERSION = pluginVersion();
+
+    private static final int NONE = -1;
+
+    /** Size of a stored entry: its order, fqcn, member, signature, migration, note and message. */
+    private static final int ENTRY_BYTES = 7 * Integer.BYTES;
+
+    private static final String FILE_PREFIX = "catalog-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private final Path directory;
+
+    /**
+     * Creates a store in the given directory, which is created when the first catalog is stored.
+     *
+     * @param directory the directory of the compiled catalogs
+     */
+    CompiledCatalogStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the key of a configuration from its content.
+     *
+     * @param jsonString the raw deprecatedApis rule parameter value, may be null
+     * @param catalog the catalog configured for the analysis, may be null
+     * @return the hexadecimal SHA-256 hash of the configuration
+     * @throws IOException if the catalog cannot be read
+     */
+    static String key(String jsonString, CatalogLocation catalog) throws IOException {
+        MessageDigest digest = StoreFiles.sha256();
+        update(digest, FORMAT_VERSION);
+        digest.update(PLUGIN_VERSION.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        if (jsonString == null) {
+            update(digest, NONE);
+        } else {
+            byte[] json = jsonString.getBytes(StandardCharsets.UTF_8);
+            update(digest, json.length);
+            digest.update(json);
+        }
+        if (catalog != null) {
+            try (InputStream in = catalog.openStream()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return StoreFiles.hex(digest.digest());
+    }
+
+    /**
+     * Gets the file storing the catalog of the given key.
+     *
+     * @param key the configuration key
+     * @return the file path
+     */
+    Path fileFor(String key) {
+        return directory.resolve(FILE_PREFIX + key + FILE_SUFFIX);
+    }
+
+    /**
+     * Restores the matcher stored for the given key.
+     *
+     * @param key the configuration key
+     * @return the matcher, or null if none is stored or the file cannot be read
+     */
+    DeprecatedApiMatcher load(String key) {
+        Path file = fileFor(key);
+        try {
+            return DeprecatedApiMatcher.restore(read(ByteBuffer.wrap(Files.readAllBytes(file))));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            LOG.debug("Ignoring unreadable compiled catalog " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a matcher under the given key. Failures are logged and otherwise ignored.
+     *
+     * @param key the configuration key
+     * @param matcher the compiled matcher
+     */
+    void store(String key, DeprecatedApiMatcher matcher) {
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, FILE_PREFIX, ".tmp");
+            try {
+                Files.write(temporary, write(matcher.entries()));
+                StoreFiles.replace(temporary, file);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to store the compiled deprecated API catalog to " + file + ".", e);
+        }
+    }
+
+    /**
+     * Encodes compiled entries in the file format.
+     *
+     * @param apis the entries in configuration order
+     * @return the file content
+     * @throws IOException never, the content is built in memory
+     */
+    static byte[] write(List<DeprecatedApi> apis) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> stringTable = new ArrayList<>();
+        Map<ArgumentSignature, Integer> signatures = new HashMap<>();
+        List<ArgumentSignature> signatureTable = new ArrayList<>();
+        Map<IssueMessage, Integer> messages = new HashMap<>();
+        List<IssueMessage> messageTable = new ArrayList<>();
+        for (DeprecatedApi api : apis) {
+            index(api.fqcn(), strings, stringTable);
+            index(api.member(), strings, stringTable);
+            index(api.migration(), strings, stringTable);
+            index(api.note(), strings, stringTable);
+            if (api.signature() != null && index(api.signature(), signatures, signatureTable)) {
+                for (int i = 0; i < api.signature().size(); i++) {
+                    index(api.signature().type(i), strings, stringTable);
+                }
+            }
+            if (index(api.message(), messages, messageTable)) {
+                index(api.message().constant(), strings, stringTable);
+                String[] literals = api.message().literals();
+                for (int i = 0; literals != null && i < literals.length; i++) {
+                    index(literals[i], strings, stringTable);
+                }
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(stringTable.size());
+        for (String string : stringTable) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+        out.writeInt(signatureTable.size());
+        for (ArgumentSignature signature : signatureTable) {
+            out.writeInt(signature.size());
+            for (int i = 0; i < signature.size(); i++) {
+                out.writeInt(strings.get(signature.type(i)));
+            }
+        }
+        out.writeInt(messageTable.size());
+        for (IssueMessage message : messageTable) {
+            if (message.isConstant()) {
+                out.writeInt(NONE);
+                out.writeInt(strings.get(message.constant()));
+                continue;
+            }
+            IssueMessage.Placeholder[] placeholders = message.placeholders();
+            String[] literals = message.literals();
+            out.writeInt(placeholders.length);
+            for (int i = 0; i < placeholders.length; i++) {
+                out.writeInt(strings.get(literals[i]));
+                out.writeChar(placeholders[i].code());
+            }
+            out.writeInt(strings.get(literals[placeholders.length]));
+        }
+        out.writeInt(apis.size());
+        for (DeprecatedApi api : apis) {
+            out.writeInt(api.order());
+            out.writeInt(strings.get(api.fqcn()));
+            out.writeInt(strings.get(api.member()));
+            out.writeInt(api.signature() == null ? NONE : signatures.get(api.signature()));
+            out.writeInt(api.migration() == null ? NONE : strings.get(api.migration()));
+            out.writeInt(api.note() == null ? NONE : strings.get(api.note()));
+            out.writeInt(messages.get(api.message()));
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes compiled entries from the file format.
+     *
+     * @param in the file content
+     * @return the entries in configuration order
+     * @throws IOException if the content is not a compiled catalog of the current version
+     */
+    static List<DeprecatedApi> read(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a compiled catalog of version " + FORMAT_VERSION);
+        }
+        String[] strings = new String[length(in, Integer.BYTES)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] utf8 = new byte[length(in, 1)];
+            in.get(utf8);
+            strings[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+        ArgumentSignature[] signatures = new ArgumentSignature[length(in, Integer.BYTES)];
+        for (int i = 0; i < signatures.length; i++) {
+            String[] types = new String[length(in, Integer.BYTES)];
+            for (int j = 0; j < types.length; j++) {
+                types[j] = strings[in.getInt()];
+            }
+            signatures[i] = ArgumentSignature.of(types);
+        }
+        IssueMessage[] messages = new IssueMessage[length(in, Integer.BYTES)];
+        for (int i = 0; i < messages.length; i++) {
+            int placeholderCount = in.getInt();
+            if (placeholderCount == NONE) {
+                messages[i] = IssueMessage.restore(strings[in.getInt()], null, null);
+                continue;
+            }
+            checkLength(in, placeholderCount, Integer.BYTES + Character.BYTES);
+            String[] literals = new String[placeholderCount + 1];
+            IssueMessage.Placeholder[] placeholders = new IssueMessage.Placeholder[placeholderCount];
+            for (int j = 0; j < placeholderCount; j++) {
+                literals[j] = strings[in.getInt()];
+                placeholders[j] = IssueMessage.Placeholder.ofCode(in.getChar());
+            }
+            literals[placeholderCount] = strings[in.getInt()];
+            messages[i] = IssueMessage.restore(null, literals, placeholders);
+        }
+        int count = length(in, ENTRY_BYTES);
+        List<DeprecatedApi> apis = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int order = in.getInt();
+            String fqcn = strings[in.getInt()];
+            String member = strings[in.getInt()];
+            int signature = in.getInt();
+            int migration = in.getInt();
+            int note = in.getInt();
+            apis.add(new DeprecatedApi(order, fqcn, member, signature == NONE ? null : signatures[signature],
+                migration == NONE ? null : strings[migration], note == NONE ? null : strings[note],
+                messages[in.getInt()]));
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("Unexpected data after " + count + " entries");
+        }
+        return apis;
+    }
+
+    /**
+     * Reads the number of elements of a table, checking that the remaining content can hold them.
+     *
+     * @param in the file content
+     * @param elementBytes the minimum size of one element
+     * @return the number of elements
+     * @throws IOException if the number is negative or exceeds the remaining content
+     */
+    private static int length(ByteBuffer in, int elementBytes) throws IOException {
+        int length = in.getInt();
+        checkLength(in, length, elementBytes);
+        return length;
+    }
+
+    private static void checkLength(ByteBuffer in, int length, int elementBytes) throws IOException {
+        // corrupt lengths must not allocate arrays before the content runs out
+        if (length < 0 || length > in.remaining() / elementBytes) {
+            throw new IOException("Invalid length " + length + " with " + in.remaining() + " bytes left");
+        }
+    }
+
+    private static String pluginVersion() {
+        try (InputStream in = CompiledCatalogStore.class.getResourceAsStream("plugin.properties")) {
+            Properties properties = new Properties();
+            if (in != null) {
+                properties.load(in);
+            }
+            return properties.getProperty("version", "unknown");
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    private static <T> boolean index(T value, Map<T, Integer> indexes, List<T> table) {
+        if (value == null || indexes.containsKey(value)) {
+            return false;
+        }
+        indexes.put(value, table.size());
+        table.add(value);
+        return true;
+    }
+
+    private static void update(MessageDigest digest, int value) {
+        digest.update(new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+    }
+}
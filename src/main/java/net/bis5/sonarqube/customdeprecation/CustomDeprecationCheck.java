@@ -1,74 +1,298 @@
 /* SPDX-License-Identifier: Apache-2.0 */
 package net.bis5.sonarqube.customdeprecation;
 
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.check.Rule;
-import org.sonar.check.RuleProperty;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.Arguments;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
 import org.sonar.plugins.java.api.tree.MethodInvocationTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 /**
  * SonarQube Java check for detecting usage of project-specific deprecated APIs.
  * Identifies method calls, field accesses, constructor calls, and static imports
  * that match the configured deprecated API list and reports them as issues.
+ * Scan metrics are collected while visiting and summarized by {@link CustomDeprecationSummarySensor} at the end
+ * of the analysis, from the {@link ModuleState} of the module.
+ * When a result cache directory is configured, files unchanged since the previous analysis get their
+ * cached issues back instead of being visited. When the inventory report is enabled, the usages of every
+ * catalog entry are written per file and per module. The references to one entry can be aggregated into one
+ * issue per file, and the number of issues raised per entry can be capped.
  */
 @Rule(key = CustomDeprecationRulesDefinition.RULE_KEY)
-public class CustomDeprecationCheck extends IssuableSubscriptionVisitor {
+public class CustomDeprecationCheck extends AbstractCustomDeprecationCheck {
 
     private static final Logger LOG = Loggers.get(CustomDeprecationCheck.class);
 
+    private static final String CONSTRUCTOR = "<init>";
+
+    private static final String AGGREGATION_NONE = "NONE";
+
+    private static final String AGGREGATION_FILE = "FILE";
+
+    static final List<Tree.Kind> NODES_TO_VISIT = Arrays.asList(
+        Tree.Kind.METHOD_INVOCATION,
+        Tree.Kind.NEW_CLASS,
+        Tree.Kind.MEMBER_SELECT,
+        Tree.Kind.IDENTIFIER,
+        Tree.Kind.COMPILATION_UNIT
+    );
+
+    private DeprecatedApiMatcher matcher = DeprecatedApiMatcher.EMPTY;
+
+    private boolean fileRelevant;
+
+    private ModuleState module = ModuleState.current();
+
+    private CheckMetrics metrics = module.metrics();
+
+    private final SupertypeCache supertypes = new SupertypeCache();
+
+    /** Argument signatures of the method symbols resolved in the current file. */
+    private final Map<Symbol.MethodSymbol, ArgumentSignature> signatures = new IdentityHashMap<>();
+
+    /** Catalog buckets of the owner symbols resolved in the current file. */
+    private final Map<Symbol, Owner> owners = new IdentityHashMap<>();
+
+    private FileResultCache resultCache;
+
+    /** Key of the current file while its result is recorded for the result cache, null otherwise. */
+    private String resultFileKey;
+
+    private String resultContentHash;
+
+    private final List<FileResultCache.CachedIssue> fileIssues = new ArrayList<>();
+
+    private final Set<String> fileDependencies = new HashSet<>();
+
+    /** Adds the types declaring the members referenced in the arguments of a call to the file dependencies. */
+    private final BaseTreeVisitor argumentDependencies = new BaseTreeVisitor() {
+        @Override
+        public void visitIdentifier(IdentifierTree tree) {
+            Symbol owner = tree.symbol().owner();
+            if (owner != null && owner.isTypeSymbol()) {
+                addDependency(((Symbol.TypeSymbol) owner).type());
+            }
+        }
+    };
+
+    /** Key of the current file while its usages are counted for the inventory, null otherwise. */
+    private String inventoryFileKey;
+
+    /** Configuration orders of the entries referenced in the current file, once per reference. */
+    private final List<Integer> fileUsages = new ArrayList<>();
+
+    private File workingDirectory;
+
+    private String moduleKey;
+
+    /** Whether the references to one entry are aggregated into one issue per file, read from issueAggregation. */
+    private boolean aggregateByFile;
+
+    /** Value of issueAggregation {@link #aggregateByFile} was read from. */
+    private String aggregationParameter;
+
+    /** References of the current file by entry order, in order of first reference, when aggregating by file. */
+    private final Map<Integer, List<Reference>> fileReferences = new LinkedHashMap<>();
+
+    /** Receives the entry of every issue raised when the caller applies the cap, null when this check applies it. */
+    private IntConsumer deferredCap;
+
     /**
-     * JSON array configuration of deprecated APIs to detect.
-     * Each element must contain fqcn, member, optional arguments, migration, and optional note fields.
-     * Default is an empty array, meaning no APIs are marked as deprecated.
+     * Shares the state of the module analysis with other instances analyzing files of the same module in parallel.
+     * Must be called before the first file is analyzed.
+     *
+     * @param state the shared state
      */
-    @RuleProperty(
-        key = "deprecatedApis",
-        description = "JSON array of deprecated API configurations. Each element must have: fqcn (fully qualified class name), member (method/field name or '<init>' for constructors), arguments (optional source-style list), migration (recommended action), note (optional context)",
-        type = "TEXT",
-        defaultValue = "[]"
-    )
-    public String deprecatedApis = "[]";
+    void shareModuleState(ModuleState state) {
+        this.module = state;
+        this.metrics = state.metrics();
+    }
 
-    private List<DeprecatedApiConfig> configs = Collections.emptyList();
+    /**
+     * Leaves {@code maxIssuesPerApi} to the caller, which gets the entry of every issue raised, in the order the
+     * issues are reported, and decides which to keep once it has seen all of them.
+     *
+     * @param raisedApis receives the configuration order of the entry of every issue raised
+     */
+    void deferCap(IntConsumer raisedApis) {
+        this.deferredCap = raisedApis;
+    }
 
     @Override
     public void setContext(JavaFileScannerContext context) {
         super.setContext(context);
+        signatures.clear();
+        owners.clear();
+        fileReferences.clear();
+        if (aggregationParameter == null || !aggregationParameter.equals(issueAggregation)) {
+            aggregateByFile = aggregatesByFile(issueAggregation);
+            aggregationParameter = issueAggregation;
+        }
+        long start = System.nanoTime();
+        CustomDeprecationSettings settings = CustomDeprecationSettings.current();
+        // the working directory is only needed for the reports, and is not available in every context
+        if (settings.isMetricsReport() && context.getRootProjectWorkingDirectory() != null) {
+            module.useReportDirectory(context.getRootProjectWorkingDirectory());
+        }
+        this.matcher = DeprecatedApiConfigCache.get(deprecatedApis, settings.catalog(), settings.catalogStore());
+        startInventory(context, settings);
+        if (replayCachedResult(context, settings)) {
+            this.fileRelevant = false;
+            metrics.fileStarted(true, System.nanoTime() - start);
+            return;
+        }
+        boolean bytecodeRelevant = matcher.isEmpty() || mayReferenceInBytecode(context, settings);
+        long configNanos = System.nanoTime() - start;
+        this.fileRelevant = !matcher.isEmpty() && bytecodeRelevant && matcher.prefilter().mayReference(context.getTree(), context.getFileContent());
+        metrics.fileStarted(!fileRelevant, configNanos);
+    }
+
+    private boolean replayCachedResult(JavaFileScannerContext context, CustomDeprecationSettings settings) {
+        resultFileKey = null;
+        fileIssues.clear();
+        fileDependencies.clear();
+        InputFile inputFile = context.getInputFile();
+        if (settings.resultCache() == null || inputFile == null || context.getTree() == null) {
+            return false;
+        }
+        resultCache = module.resultCache(matcher, () -> loadResultCache(settings));
+        if (resultCache == null) {
+            return false;
+        }
+        String contentHash = FileResultCache.contentHash(context.getFileContent());
+        FileResultCache.FileResult result = resultCache.lookup(inputFile.key(), contentHash);
+        List<Tree> trees = result == null ? null : FileResultCache.locate(context.getTree(), result.issues());
+        if (trees != null) {
+            // the cache keeps every reference, so aggregation and caps apply as if the file was visited
+            for (int i = 0; i < trees.size(); i++) {
+                FileResultCache.CachedIssue issue = result.issues().get(i);
+                recordUsage(issue.api());
+                raise(new Reference(trees.get(i), issue.api(), issue.message()));
+            }
+            return true;
+        }
+        resultFileKey = inputFile.key();
+        resultContentHash = contentHash;
+        return false;
+    }
+
+    private void startInventory(JavaFileScannerContext context, CustomDeprecationSettings settings) {
+        inventoryFileKey = null;
+        fileUsages.clear();
+        if (!settings.isInventoryReport() || context.getRootProjectWorkingDirectory() == null || context.getInputFile() == null) {
+            return;
+        }
+        inventoryFileKey = context.getInputFile().key();
+        workingDirectory = context.getRootProjectWorkingDirectory();
+        moduleKey = settings.module();
+    }
+
+    private void recordUsage(int order) {
+        if (inventoryFileKey != null) {
+            fileUsages.add(order);
+        }
+    }
+
+    private FileResultCache loadResultCache(CustomDeprecationSettings settings) {
+        String catalogKey;
+        try {
+            catalogKey = CompiledCatalogStore.key(deprecatedApis, settings.catalog());
+        } catch (IOException e) {
+            LOG.warn("Failed to read the deprecated API catalog; the result cache is not used.", e);
+            return null;
+        }
+        String configurationKey = FileResultCache.configurationKey(catalogKey, "matchInherited=" + matchInherited,
+            String.valueOf(settings.binaries()), FileResultCache.libraryStamp(settings.libraries()));
+        return FileResultCache.load(settings.resultCache(), settings.module(), configurationKey, settings.binaries());
+    }
+
+    private boolean mayReferenceInBytecode(JavaFileScannerContext context, CustomDeprecationSettings settings) {
+        if (!settings.isBytecodePrescan() || settings.binaries().isEmpty()) {
+            return true;
+        }
+        BytecodePrescan prescan = module.prescan(matcher, settings.binaries(), settings.libraries().stream()
+            .flatMap(library -> FileResultCache.libraryFiles(library).stream())
+            .collect(Collectors.toList()));
+        CompilationUnitTree tree = context.getTree();
+        InputFile inputFile = context.getInputFile();
+        if (tree == null || inputFile == null) {
+            return true;
+        }
+        String packageName = tree.packageDeclaration() == null
+            ? null
+            : ReferencePrefilter.qualifiedName(tree.packageDeclaration().packageName());
         try {
-            this.configs = DeprecatedApiConfig.parseFromJson(deprecatedApis);
-        } catch (Exception e) {
-            LOG.warn("Failed to parse deprecatedApis configuration. The rule will run with an empty configuration.", e);
-            this.configs = Collections.emptyList();
+            long lastModified = Files.getLastModifiedTime(Path.of(inputFile.uri())).toMillis();
+            return prescan.mayReference(BytecodePrescan.sourceKey(packageName, inputFile.filename()), lastModified);
+        } catch (IOException e) {
+            return true;
         }
     }
 
     @Override
     public List<Tree.Kind> nodesToVisit() {
-        return Arrays.asList(
-            Tree.Kind.METHOD_INVOCATION,
-            Tree.Kind.NEW_CLASS,
-            Tree.Kind.MEMBER_SELECT,
-            Tree.Kind.IDENTIFIER
-        );
+        return NODES_TO_VISIT;
     }
 
     @Override
     public void visitNode(Tree tree) {
+        metrics.nodeVisited(tree.kind());
+        if (!fileRelevant) {
+            return;
+        }
+        long start = System.nanoTime();
+        dispatch(tree);
+        metrics.nodeTimed(System.nanoTime() - start);
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+        if (tree.is(Tree.Kind.COMPILATION_UNIT)) {
+            raiseFileIssues();
+        }
+    }
+
+    @Override
+    public void leaveFile(JavaFileScannerContext context) {
+        if (resultFileKey != null) {
+            resultCache.put(resultFileKey, resultContentHash, fileDependencies, fileIssues);
+            resultFileKey = null;
+        }
+        if (inventoryFileKey != null) {
+            module.recordUsages(workingDirectory, moduleKey, matcher, inventoryFileKey, fileUsages);
+            inventoryFileKey = null;
+        }
+        super.leaveFile(context);
+    }
+
+    private void dispatch(Tree tree) {
         if (tree.is(Tree.Kind.METHOD_INVOCATION)) {
             visitMethodInvocation((MethodInvocationTree) tree);
         } else if (tree.is(Tree.Kind.NEW_CLASS)) {
@@ -81,38 +305,105 @@ public class CustomDeprecationCheck extends IssuableSubscriptionVisitor {
     }
 
     private void visitMethodInvocation(MethodInvocationTree tree) {
+        // the called name is known without resolving the call; most names are in no configuration
+        String name = methodName(tree);
+        if (name != null && !matcher.isConfiguredMember(name)) {
+            return;
+        }
         Symbol.MethodSymbol methodSymbol = tree.methodSymbol();
         if (methodSymbol == null) {
             return;
         }
-        String fqcn = fullyQualifiedName(methodSymbol.owner());
-        String member = methodSymbol.name();
-        String arguments = argumentsFromMethodSymbol(methodSymbol);
-        checkAndReport(tree, fqcn, member, arguments);
+        if (resultFileKey != null && matcher.isConfiguredMember(methodSymbol.name())) {
+            if (tree.methodSelect() instanceof MemberSelectExpressionTree memberSelect) {
+                // the method a call resolves to also depends on the declared type of its receiver
+                addDependency(memberSelect.expression().symbolType());
+            }
+            addCallDependencies(tree.arguments(), methodSymbol);
+        }
+        DeprecatedApi api = matchMethod(lookup(methodSymbol.owner(), methodSymbol.name()), methodSymbol);
+        // constructors are not inherited: super(...) and this(...) only match on their declaring type
+        if (api == null && matchInherited && !CONSTRUCTOR.equals(methodSymbol.name())
+            && matcher.isConfiguredMember(methodSymbol.name())) {
+            api = matchInheritedMethod(methodSymbol);
+        }
+        report(tree, api, methodSymbol);
+    }
+
+    private DeprecatedApi matchMethod(DeprecatedApiMatcher.MemberEntry entry, Symbol.MethodSymbol methodSymbol) {
+        if (entry == null) {
+            return null;
+        }
+        // the signature is only built once the fqcn and member are known to be configured
+        ArgumentSignature arguments = entry.needsArguments() ? argumentsFromMethodSymbol(methodSymbol) : null;
+        return entry.match(arguments);
+    }
+
+    private DeprecatedApi matchInheritedMethod(Symbol.MethodSymbol methodSymbol) {
+        // overridden methods keep their own signature, which differs from the override for generic parameters
+        for (Symbol.MethodSymbol overriddenSymbol : methodSymbol.overriddenSymbols()) {
+            DeprecatedApi api = matchMethod(lookup(overriddenSymbol.owner(), overriddenSymbol.name()), overriddenSymbol);
+            if (api != null) {
+                return api;
+            }
+        }
+        for (String supertype : supertypes.closure(methodSymbol.owner())) {
+            DeprecatedApi api = matchMethod(lookup(supertype, methodSymbol.name()), methodSymbol);
+            if (api != null) {
+                return api;
+            }
+        }
+        return null;
+    }
+
+    private static String methodName(MethodInvocationTree tree) {
+        String name;
+        if (tree.methodSelect() instanceof MemberSelectExpressionTree memberSelect) {
+            name = memberSelect.identifier().name();
+        } else if (tree.methodSelect() instanceof IdentifierTree identifier) {
+            name = identifier.name();
+        } else {
+            return null;
+        }
+        // super(...) and this(...) call a constructor, whose symbol is named <init>
+        return "super".equals(name) || "this".equals(name) ? CONSTRUCTOR : name;
     }
 
     private void visitNewClass(NewClassTree tree) {
+        if (!matcher.isConfiguredMember(CONSTRUCTOR)) {
+            return;
+        }
         Symbol.MethodSymbol constructorSymbol = tree.methodSymbol();
         if (constructorSymbol == null) {
             return;
         }
-        String fqcn = fullyQualifiedName(constructorSymbol.owner());
-        String member = "<init>";
-        String arguments = argumentsFromConstructorSymbol(constructorSymbol);
-        checkAndReport(tree, fqcn, member, arguments);
+        if (resultFileKey != null) {
+            addCallDependencies(tree.arguments(), constructorSymbol);
+        }
+        DeprecatedApiMatcher.MemberEntry entry = lookup(constructorSymbol.owner(), CONSTRUCTOR);
+        if (entry == null) {
+            return;
+        }
+        ArgumentSignature arguments = entry.needsArguments() ? argumentsFromMethodSymbol(constructorSymbol) : null;
+        report(tree, entry.match(arguments), constructorSymbol);
     }
 
     private void visitMemberSelect(MemberSelectExpressionTree tree) {
+        if (!matcher.isConfiguredMember(tree.identifier().name())) {
+            return;
+        }
         Symbol symbol = tree.identifier().symbol();
         if (symbol == null || !symbol.isVariableSymbol()) {
             return;
         }
-        String fqcn = fullyQualifiedName(symbol.owner());
-        String member = symbol.name();
-        checkAndReport(tree, fqcn, member, null);
+        reportField(tree, lookup(symbol.owner(), symbol.name()));
     }
 
     private void visitIdentifier(IdentifierTree tree) {
+        // almost every identifier names something unrelated; reject those before any parent or symbol lookup
+        if (!matcher.isConfiguredMember(tree.name())) {
+            return;
+        }
         if (isPartOfMethodInvocation(tree) || isPartOfMemberSelect(tree)) {
             return;
         }
@@ -126,9 +417,7 @@ public class CustomDeprecationCheck extends IssuableSubscriptionVisitor {
         if (symbol.owner() == null || !symbol.owner().isTypeSymbol()) {
             return;
         }
-        String fqcn = fullyQualifiedName(symbol.owner());
-        String member = symbol.name();
-        checkAndReport(tree, fqcn, member, null);
+        reportField(tree, lookup(symbol.owner(), symbol.name()));
     }
 
     private boolean isPartOfMethodInvocation(IdentifierTree tree) {
@@ -152,26 +441,144 @@ public class CustomDeprecationCheck extends IssuableSubscriptionVisitor {
         return false;
     }
 
-    private void checkAndReport(Tree tree, String fqcn, String member, String arguments) {
-        if (configs == null || configs.isEmpty()) {
+    private DeprecatedApiMatcher.MemberEntry lookup(Symbol ownerSymbol, String member) {
+        // a file resolves members of the same few owners over and over; each owner is resolved once
+        Owner owner = owners.get(ownerSymbol);
+        if (owner == null) {
+            String fqcn = fullyQualifiedName(ownerSymbol);
+            owner = new Owner(fqcn, matcher.bucket(fqcn));
+            owners.put(ownerSymbol, owner);
+        }
+        DeprecatedApiMatcher.MemberEntry entry = owner.bucket() == null ? null : owner.bucket().find(member);
+        return recordLookup(owner.fqcn(), member, entry);
+    }
+
+    private DeprecatedApiMatcher.MemberEntry lookup(String fqcn, String member) {
+        return recordLookup(fqcn, member, matcher.find(fqcn, member));
+    }
+
+    private DeprecatedApiMatcher.MemberEntry recordLookup(String fqcn, String member, DeprecatedApiMatcher.MemberEntry entry) {
+        metrics.lookup(entry != null && entry.needsArguments());
+        if (resultFileKey != null && fqcn != null && matcher.isConfiguredMember(member)) {
+            fileDependencies.add(fqcn);
+        }
+        return entry;
+    }
+
+    private void addDependency(Type type) {
+        if (type != null && type.isArray()) {
+            addDependency(((Type.ArrayType) type).elementType());
+        } else if (type != null && type.isClass() && !type.isUnknown() && type.fullyQualifiedName() != null) {
+            fileDependencies.add(type.fullyQualifiedName());
+        }
+    }
+
+    private void addCallDependencies(Arguments arguments, Symbol.MethodSymbol methodSymbol) {
+        // the overload a call resolves to depends on the declared types of the parameters and of the arguments,
+        // including the types declaring the fields and methods the arguments are computed from
+        for (Type parameterType : methodSymbol.parameterTypes()) {
+            addDependency(parameterType);
+        }
+        for (ExpressionTree argument : arguments) {
+            addDependency(argument.symbolType());
+            argument.accept(argumentDependencies);
+        }
+    }
+
+    private void reportField(Tree tree, DeprecatedApiMatcher.MemberEntry entry) {
+        if (entry != null) {
+            report(tree, entry.match(null), null);
+        }
+    }
+
+    private void report(Tree tree, DeprecatedApi api, Symbol.MethodSymbol methodSymbol) {
+        if (api == null) {
             return;
         }
-        Optional<DeprecatedApiConfig> matched = configs.stream()
-            .filter(config -> config.matches(fqcn, member, arguments))
-            .findFirst();
+        recordUsage(api.order());
+        String message = api.message().format(placeholder -> {
+            if (placeholder == IssueMessage.Placeholder.SIGNATURE) {
+                return methodSymbol == null ? "" : argumentsFromMethodSymbol(methodSymbol).toString();
+            }
+            return enclosingClassName(tree);
+        });
+        raise(new Reference(tree, api.order(), message));
+        if (resultFileKey != null) {
+            fileIssues.add(FileResultCache.CachedIssue.of(tree, api.order(), message));
+        }
+    }
+
+    private boolean aggregatesByFile(String issueAggregation) {
+        String value = issueAggregation == null ? AGGREGATION_NONE : issueAggregation.trim();
+        if (AGGREGATION_FILE.equals(value)) {
+            return true;
+        }
+        if (!AGGREGATION_NONE.equals(value) && module.firstWarning("issueAggregation=" + issueAggregation)) {
+            LOG.warn("Invalid issueAggregation rule parameter '{}': expected {} or {}. {} is used.", issueAggregation,
+                AGGREGATION_NONE, AGGREGATION_FILE, AGGREGATION_NONE);
+        }
+        return false;
+    }
+
+    private void raise(Reference reference) {
+        if (aggregateByFile) {
+            fileReferences.computeIfAbsent(reference.api(), api -> new ArrayList<>()).add(reference);
+        } else if (withinCap(reference.api())) {
+            metrics.issueRaised();
+            reportIssue(reference.tree(), reference.message());
+        }
+    }
 
-        if (matched.isPresent()) {
-            DeprecatedApiConfig config = matched.get();
-            String message = buildMessage(config);
-            reportIssue(tree, message);
+    private void raiseFileIssues() {
+        for (List<Reference> references : fileReferences.values()) {
+            Reference first = references.get(0);
+            if (!withinCap(first.api())) {
+                continue;
+            }
+            List<JavaFileScannerContext.Location> others = new ArrayList<>(references.size() - 1);
+            for (Reference other : references.subList(1, references.size())) {
+                others.add(new JavaFileScannerContext.Location(other.message(), other.tree()));
+            }
+            metrics.issueRaised();
+            reportIssue(first.tree(), first.message(), others, null);
         }
+        fileReferences.clear();
     }
 
-    private String buildMessage(DeprecatedApiConfig config) {
-        String migration = config.getMigration() == null ? "" : config.getMigration();
-        String note = config.getNote();
-        String suffix = (note != null && !note.isEmpty()) ? " (" + note + ")" : "";
-        return "This API is deprecated for this project. " + migration + suffix;
+    private boolean withinCap(int api) {
+        if (deferredCap != null) {
+            deferredCap.accept(api);
+            return true;
+        }
+        return module.withinCap(api, maxIssuesPerApi);
+    }
+
+    /**
+     * Reference to a configured entry found in the current file.
+     *
+     * @param tree the referencing node
+     * @param api the configuration order of the entry
+     * @param message the issue message of the reference
+     */
+    private record Reference(Tree tree, int api, String message) {
+    }
+
+    private static String enclosingClassName(Tree tree) {
+        for (Tree parent = tree.parent(); parent != null; parent = parent.parent()) {
+            if (parent instanceof ClassTree classTree && classTree.symbol() != null) {
+                return fullyQualifiedName(classTree.symbol());
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Owner type of resolved members, with the catalog entries that can match its members.
+     *
+     * @param fqcn the fully qualified class name of the owner, null if unknown
+     * @param bucket the catalog bucket of the owner, null if no configuration targets it
+     */
+    private record Owner(String fqcn, DeprecatedApiMatcher.TypeBucket bucket) {
     }
 
     private static String fullyQualifiedName(Symbol symbol) {
@@ -181,22 +588,25 @@ public class CustomDeprecationCheck extends IssuableSubscriptionVisitor {
         return symbol.type().fullyQualifiedName();
     }
 
-    private static String argumentsFromMethodSymbol(Symbol.MethodSymbol methodSymbol) {
-        return argumentsFromTypes(methodSymbol.parameterTypes());
-    }
-
-    private static String argumentsFromConstructorSymbol(Symbol.MethodSymbol methodSymbol) {
-        return argumentsFromTypes(methodSymbol.parameterTypes());
+    private ArgumentSignature argumentsFromMethodSymbol(Symbol.MethodSymbol methodSymbol) {
+        // call sites resolving to the same method share one symbol instance within a file
+        ArgumentSignature arguments = signatures.get(methodSymbol);
+        if (arguments == null) {
+            arguments = argumentsFromTypes(methodSymbol.parameterTypes());
+            signatures.put(methodSymbol, arguments);
+        }
+        return arguments;
     }
 
-    private static String argumentsFromTypes(List<Type> types) {
+    private static ArgumentSignature argumentsFromTypes(List<Type> types) {
         if (types == null || types.isEmpty()) {
-            return "()";
+            return ArgumentSignature.NO_ARGUMENTS;
+        }
+        String[] names = new String[types.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = argumentTypeName(types.get(i));
         }
-        String params = types.stream()
-            .map(CustomDeprecationCheck::argumentTypeName)
-            .collect(Collectors.joining(","));
-        return "(" + params + ")";
+        return ArgumentSignature.of(names);
     }
 
     private static String argumentTypeName(Type type) {
@@ -3,6 +3,7 @@ package net.bis5.sonarqube.customdeprecation;
 
 import java.util.Collections;
 import java.util.List;
+import org.sonar.api.config.Configuration;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonarsource.api.sonarlint.SonarLintSide;
@@ -12,20 +13,43 @@ import org.sonarsource.api.sonarlint.SonarLintSide;
  * source code analysis.
  *
  * This class is a batch extension by implementing the {@link CheckRegistrar} interface.
+ * It also publishes the scanner settings of the analysis, since checks cannot read them directly,
+ * and the {@link ModuleState} shared by the checks created for the module, which
+ * {@link CustomDeprecationSummarySensor} takes back once the module is analyzed.
  */
 @SonarLintSide
 public class CustomDeprecationCheckRegistrar implements CheckRegistrar {
 
+    private final Configuration configuration;
+
+    /**
+     * Creates a registrar without scanner configuration; the default settings are used.
+     */
+    public CustomDeprecationCheckRegistrar() {
+        this(null);
+    }
+
+    /**
+     * Creates a registrar reading the plugin settings from the scanner configuration.
+     *
+     * @param configuration the scanner configuration, may be null
+     */
+    public CustomDeprecationCheckRegistrar(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
     /**
      * Register the classes that will be used to instantiate checks during analysis.
      */
     @Override
     public void register(RegistrarContext registrarContext) {
+        CustomDeprecationSettings.publish(configuration == null ? null : CustomDeprecationSettings.from(configuration));
+        ModuleState.startModule();
         // Call to registerClassesForRepository to associate the classes with the correct repository key
         registrarContext.registerClassesForRepository(
             CustomDeprecationRulesDefinition.REPOSITORY_KEY,
             checkClasses(),
-            Collections.emptyList());
+            testCheckClasses());
     }
 
     /**
@@ -36,4 +60,14 @@ public class CustomDeprecationCheckRegistrar implements CheckRegistrar {
     public static List<Class<? extends JavaCheck>> checkClasses() {
         return Collections.singletonList(CustomDeprecationCheck.class);
     }
+
+    /**
+     * Lists the checks provided by the plugin for test files.
+     * The rule does not analyze test files.
+     *
+     * @return list of check classes registered for test files by this plugin
+     */
+    public static List<Class<? extends JavaCheck>> testCheckClasses() {
+        return Collections.emptyList();
+    }
 }
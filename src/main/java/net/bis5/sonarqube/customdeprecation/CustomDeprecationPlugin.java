@@ -5,7 +5,8 @@ import org.sonar.api.Plugin;
 
 /**
  * SonarQube plugin entry point for the Custom Deprecation rule.
- * Registers the rule definition and check registrar for detecting usage of project-specific deprecated APIs.
+ * Registers the rule definition, the check registrar and the sensor ending the analysis of a module
+ * for detecting usage of project-specific deprecated APIs.
  */
 public class CustomDeprecationPlugin implements Plugin {
 
@@ -18,5 +19,7 @@ public class CustomDeprecationPlugin implements Plugin {
     public void define(Context context) {
         context.addExtension(CustomDeprecationRulesDefinition.class);
         context.addExtension(CustomDeprecationCheckRegistrar.class);
+        context.addExtension(CustomDeprecationSummarySensor.class);
+        context.addExtensions(CustomDeprecationSettings.definitions());
     }
 }
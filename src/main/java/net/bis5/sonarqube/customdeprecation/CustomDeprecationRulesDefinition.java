@@ -42,6 +42,27 @@ public class CustomDeprecationRulesDefinition implements RulesDefinition {
             .setDescription("JSON array of deprecated API configurations. "
                 + "Each entry must contain fqcn, member, optional arguments, migration, and optional note.");
 
+        rule.createParam("matchInherited")
+            .setName("Match Inherited Methods")
+            .setType(RuleParamType.BOOLEAN)
+            .setDefaultValue("false")
+            .setDescription("Also report calls to methods overriding a configured method, "
+                + "or declared with a configured member name in a subtype of a configured fqcn.");
+
+        rule.createParam("issueAggregation")
+            .setName("Issue Aggregation")
+            .setType(RuleParamType.singleListOfValues("NONE", "FILE"))
+            .setDefaultValue("NONE")
+            .setDescription("NONE raises one issue per reference. FILE raises one issue per deprecated API and file, "
+                + "on the first reference, with the other references as secondary locations.");
+
+        rule.createParam("maxIssuesPerApi")
+            .setName("Maximum Issues per API")
+            .setType(RuleParamType.INTEGER)
+            .setDefaultValue("0")
+            .setDescription("Maximum number of issues raised for one deprecated API in a module, 0 for no limit. "
+                + "Further references are not reported.");
+
         repository.done();
     }
 
@@ -0,0 +1,292 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinition;
+import org.sonar.api.resources.Qualifiers;
+
+/**
+ * Scanner properties of the plugin.
+ * Checks are instantiated by the Java analyzer without access to the scanner configuration,
+ * so {@link CustomDeprecationCheckRegistrar} publishes the settings of the current analysis here.
+ * Scanner components such as {@link CustomDeprecationSummarySensor} read them from their own configuration instead.
+ */
+public final class CustomDeprecationSettings {
+
+    /** Property enabling the JSON metrics report written at the end of the analysis. */
+    public static final String METRICS_REPORT_KEY = "sonar.customDeprecation.metricsReport";
+
+    /** Property pointing to a deprecated API catalog file or classpath resource. */
+    public static final String CATALOG_KEY = "sonar.customDeprecation.catalog";
+
+    /** Property enabling the pre-scan of compiled classes deciding which files the rule visits. */
+    public static final String BYTECODE_PRESCAN_KEY = "sonar.customDeprecation.bytecodePrescan";
+
+    /** Property pointing to the directory where compiled catalogs are kept between analyses. */
+    public static final String CATALOG_STORE_KEY = "sonar.customDeprecation.compiledCatalogDir";
+
+    /** Property pointing to the directory where the issues of every file are kept between analyses. */
+    public static final String RESULT_CACHE_KEY = "sonar.customDeprecation.resultCacheDir";
+
+    /** Property enabling the CSV inventory of the usages of every catalog entry. */
+    public static final String INVENTORY_REPORT_KEY = "sonar.customDeprecation.inventoryReport";
+
+    private static final String PROJECT_BASE_DIR_KEY = "sonar.projectBaseDir";
+
+    private static final String PROJECT_KEY = "sonar.projectKey";
+
+    private static final String MODULE_KEY = "sonar.moduleKey";
+
+    private static final String JAVA_BINARIES_KEY = "sonar.java.binaries";
+
+    private static final String JAVA_LIBRARIES_KEY = "sonar.java.libraries";
+
+    private static final String CATEGORY = "Custom Deprecation";
+
+    private static final CustomDeprecationSettings DEFAULTS =
+        new CustomDeprecationSettings(false, null, false, Collections.emptyList(), null, null, Collections.emptyList(), false, "");
+
+    private static volatile CustomDeprecationSettings current = DEFAULTS;
+
+    private final boolean metricsReport;
+    private final CatalogLocation catalog;
+    private final boolean bytecodePrescan;
+    private final List<Path> binaries;
+    private final Path catalogStore;
+    private final Path resultCache;
+    private final List<String> libraries;
+    private final boolean inventoryReport;
+    private final String module;
+
+    private CustomDeprecationSettings(boolean metricsReport, CatalogLocation catalog, boolean bytecodePrescan,
+        List<Path> binaries, Path catalogStore, Path resultCache, List<String> libraries, boolean inventoryReport,
+        String module) {
+        this.metricsReport = metricsReport;
+        this.catalog = catalog;
+        this.bytecodePrescan = bytecodePrescan;
+        this.binaries = binaries;
+        this.catalogStore = catalogStore;
+        this.resultCache = resultCache;
+        this.libraries = libraries;
+        this.inventoryReport = inventoryReport;
+        this.module = module;
+    }
+
+    /**
+     * Lists the property definitions registered by the plugin.
+     *
+     * @return the property definitions
+     */
+    public static List<PropertyDefinition> definitions() {
+        return Arrays.asList(
+            PropertyDefinition.builder(METRICS_REPORT_KEY)
+                .name("Write metrics report")
+                .description("Write the Custom Deprecation rule's scan metrics of every module as JSON to "
+                    + "custom-deprecation-metrics-<module>.json in the scanner working directory.")
+                .category(CATEGORY)
+                .type(PropertyType.BOOLEAN)
+                .defaultValue("false")
+                .onQualifiers(Qualifiers.PROJECT)
+                .build(),
+            PropertyDefinition.builder(CATALOG_KEY)
+                .name("Deprecated API catalog")
+                .description("Path to a JSON file with the same format as the deprecatedApis rule parameter, "
+                    + "relative to the project base directory, or classpath:<resource> for a resource on the "
+                    + "scanner classpath. Its entries are appended to the entries of the rule parameter.")
+                .category(CATEGORY)
+                .type(PropertyType.STRING)
+                .onQualifiers(Qualifiers.PROJECT)
+                .build(),
+            PropertyDefinition.builder(BYTECODE_PRESCAN_KEY)
+                .name("Pre-scan compiled classes")
+                .description("Read the constant pools of the classes in sonar.java.binaries before the analysis "
+                    + "and skip the files whose classes reference no configured member. Requires up-to-date "
+                    + "binaries. Every file is analyzed when a configured field is a compile-time constant, "
+                    + "since the compiler inlines its value.")
+                .category(CATEGORY)
+                .type(PropertyType.BOOLEAN)
+                .defaultValue("false")
+                .onQualifiers(Qualifiers.PROJECT)
+                .build(),
+            PropertyDefinition.builder(CATALOG_STORE_KEY)
+                .name("Compiled catalog directory")
+                .description("Directory, relative to the project base directory, where the compiled deprecated API "
+                    + "configuration is kept between analyses. An analysis whose rule parameter and catalog content "
+                    + "are unchanged restores it instead of parsing and compiling the JSON again. Use a directory "
+                    + "that outlives the analysis; the scanner working directory is cleaned on every run.")
+                .category(CATEGORY)
+                .type(PropertyType.STRING)
+                .onQualifiers(Qualifiers.PROJECT)
+                .build(),
+            PropertyDefinition.builder(RESULT_CACHE_KEY)
+                .name("Result cache directory")
+                .description("Directory, relative to the project base directory, where the issues of every file are "
+                    + "kept between analyses. A file whose content, configuration and referenced compiled classes are "
+                    + "unchanged gets its previous issues without being analyzed again. Use a directory that outlives "
+                    + "the analysis.")
+                .category(CATEGORY)
+                .type(PropertyType.STRING)
+                .onQualifiers(Qualifiers.PROJECT)
+                .build(),
+            PropertyDefinition.builder(INVENTORY_REPORT_KEY)
+                .name("Write inventory report")
+                .description("Write the usages of every deprecated API entry per file and per module as CSV to "
+                    + UsageInventory.FILE_PREFIX + "-<module>.csv in the scanner working directory.")
+                .category(CATEGORY)
+                .type(PropertyType.BOOLEAN)
+                .defaultValue("false")
+                .onQualifiers(Qualifiers.PROJECT)
+                .build());
+    }
+
+    /**
+     * Reads the settings from the scanner configuration.
+     *
+     * @param configuration the scanner configuration
+     * @return the settings
+     */
+    static CustomDeprecationSettings from(Configuration configuration) {
+        Path baseDir = configuration.get(PROJECT_BASE_DIR_KEY).map(Paths::get).orElse(null);
+        List<Path> binaries = new ArrayList<>();
+        for (String binary : configuration.getStringArray(JAVA_BINARIES_KEY)) {
+            if (!binary.isBlank()) {
+                Path path = Paths.get(binary.trim());
+                binaries.add(baseDir == null ? path : baseDir.resolve(path));
+            }
+        }
+        List<String> libraries = new ArrayList<>();
+        for (String library : configuration.getStringArray(JAVA_LIBRARIES_KEY)) {
+            if (!library.isBlank()) {
+                // values may be glob patterns, which are not valid paths on every platform
+                String trimmed = library.trim();
+                libraries.add(baseDir == null || new File(trimmed).isAbsolute() ? trimmed
+                    : baseDir + File.separator + trimmed);
+            }
+        }
+        return new CustomDeprecationSettings(
+            configuration.getBoolean(METRICS_REPORT_KEY).orElse(false),
+            CatalogLocation.resolve(configuration.get(CATALOG_KEY).orElse(null), baseDir),
+            configuration.getBoolean(BYTECODE_PRESCAN_KEY).orElse(false),
+            Collections.unmodifiableList(binaries),
+            directory(configuration, CATALOG_STORE_KEY, baseDir),
+            directory(configuration, RESULT_CACHE_KEY, baseDir),
+            Collections.unmodifiableList(libraries),
+            configuration.getBoolean(INVENTORY_REPORT_KEY).orElse(false),
+            configuration.get(MODULE_KEY).or(() -> configuration.get(PROJECT_KEY)).orElse(""));
+    }
+
+    private static Path directory(Configuration configuration, String key, Path baseDir) {
+        return configuration.get(key)
+            .filter(value -> !value.isBlank())
+            .map(value -> Paths.get(value.trim()))
+            .map(path -> baseDir == null ? path : baseDir.resolve(path))
+            .orElse(null);
+    }
+
+    /**
+     * Gets the settings of the current analysis, or the defaults if none were published.
+     *
+     * @return the current settings
+     */
+    static CustomDeprecationSettings current() {
+        return current;
+    }
+
+    /**
+     * Publishes the settings of the current analysis.
+     *
+     * @param settings the settings, or null to restore the defaults
+     */
+    static void publish(CustomDeprecationSettings settings) {
+        current = settings == null ? DEFAULTS : settings;
+    }
+
+    /**
+     * Checks whether the JSON metrics report is enabled.
+     *
+     * @return true if the report should be written
+     */
+    boolean isMetricsReport() {
+        return metricsReport;
+    }
+
+    /**
+     * Gets the configured deprecated API catalog.
+     *
+     * @return the catalog location, or null if no catalog is configured
+     */
+    CatalogLocation catalog() {
+        return catalog;
+    }
+
+    /**
+     * Checks whether compiled classes are pre-scanned before the analysis.
+     *
+     * @return true if the bytecode pre-scan is enabled
+     */
+    boolean isBytecodePrescan() {
+        return bytecodePrescan;
+    }
+
+    /**
+     * Gets the binaries directories and jars of the project.
+     *
+     * @return the absolute binaries paths, empty if none are configured
+     */
+    List<Path> binaries() {
+        return binaries;
+    }
+
+    /**
+     * Gets the directory where compiled catalogs are kept between analyses.
+     *
+     * @return the directory, or null if compiled catalogs are not kept
+     */
+    Path catalogStore() {
+        return catalogStore;
+    }
+
+    /**
+     * Gets the directory where the issues of every file are kept between analyses.
+     *
+     * @return the directory, or null if results are not kept
+     */
+    Path resultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Gets the library paths and patterns of the project, resolved against the project base directory.
+     *
+     * @return the absolute library values, empty if none are configured
+     */
+    List<String> libraries() {
+        return libraries;
+    }
+
+    /**
+     * Checks whether the CSV inventory of the usages of every catalog entry is enabled.
+     *
+     * @return true if the inventory should be written
+     */
+    boolean isInventoryReport() {
+        return inventoryReport;
+    }
+
+    /**
+     * Gets the key of the analyzed module, the project key unless the scanner sets a module key.
+     *
+     * @return the module key, empty if unknown
+     */
+    String module() {
+        return module;
+    }
+}
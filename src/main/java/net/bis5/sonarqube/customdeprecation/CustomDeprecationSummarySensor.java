@@ -0,0 +1,52 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.File;
+import org.sonar.api.batch.Phase;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.Configuration;
+
+/**
+ * Ends the analysis of a module for the Custom Deprecation rule: logs the summary of the scan metrics and writes
+ * the result cache and the reports of the {@link ModuleState} shared by the {@link CustomDeprecationCheck}s.
+ *
+ * <p>The Java analyzer instantiates checks without access to the scanner, so the state is handed over statically,
+ * which relies on this order within a module: {@link CustomDeprecationCheckRegistrar} publishes a new state when
+ * the scanner starts the module, before any sensor runs; the checks created by the Java sensor take it; this
+ * sensor runs in the post phase, after the Java sensor, and takes the state back. SonarLint runs no sensor, so
+ * there the state of an analysis is replaced by the next one without writing anything.</p>
+ */
+@Phase(name = Phase.Name.POST)
+public class CustomDeprecationSummarySensor implements Sensor {
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+        // not restricted to a language, so the state is taken back even if the Java sensor did not run
+        descriptor.name("Custom Deprecation summary");
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+        endModule(context.activeRules(), context.config(), context.fileSystem().workDir());
+    }
+
+    /**
+     * Takes the state of the module and finishes it if the rule is active.
+     *
+     * @param activeRules the rules active for the module
+     * @param configuration the scanner configuration of the module
+     * @param workDir the working directory of the module, used if no check saw the root project working directory
+     */
+    void endModule(ActiveRules activeRules, Configuration configuration, File workDir) {
+        ModuleState module = ModuleState.endModule();
+        if (module == null || activeRules.find(CustomDeprecationRulesDefinition.ruleKey()) == null) {
+            return;
+        }
+        CustomDeprecationSettings settings = CustomDeprecationSettings.from(configuration);
+        File directory = module.reportDirectory() == null ? workDir : module.reportDirectory();
+        module.finish(directory, settings.module(), settings.isMetricsReport());
+    }
+}
@@ -0,0 +1,73 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+/**
+ * Compiled form of a single deprecated API entry.
+ * All text is shared through the {@link StringPool} of the catalog, so entries repeating the same
+ * fqcn, migration or note cost one reference each instead of a copy of the text. The issue message
+ * is compiled along with the entry, so raising an issue does not rebuild it.
+ */
+final class DeprecatedApi {
+
+    private final int order;
+    private final String fqcn;
+    private final String member;
+    private final ArgumentSignature signature;
+    private final String migration;
+    private final String note;
+    private final IssueMessage message;
+
+    DeprecatedApi(int order, String fqcn, String member, ArgumentSignature signature, String migration, String note,
+        IssueMessage message) {
+        this.order = order;
+        this.fqcn = fqcn;
+        this.member = member;
+        this.signature = signature;
+        this.migration = migration;
+        this.note = note;
+        this.message = message;
+    }
+
+    /**
+     * Gets the position of the entry in the configuration, starting at 0.
+     *
+     * @return the entry position
+     */
+    int order() {
+        return order;
+    }
+
+    String fqcn() {
+        return fqcn;
+    }
+
+    String member() {
+        return member;
+    }
+
+    /**
+     * Gets the argument signature targeted by this entry.
+     *
+     * @return the signature, or null if all overloads are targeted
+     */
+    ArgumentSignature signature() {
+        return signature;
+    }
+
+    String migration() {
+        return migration;
+    }
+
+    String note() {
+        return note;
+    }
+
+    /**
+     * Gets the compiled issue message.
+     *
+     * @return the message reported for references to this entry
+     */
+    IssueMessage message() {
+        return message;
+    }
+}
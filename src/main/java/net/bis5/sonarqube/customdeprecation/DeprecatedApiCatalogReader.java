@@ -0,0 +1,136 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Streaming reader for deprecated API catalogs in the {@code deprecatedApis} JSON format.
+ * Entries are read one at a time with a {@link JsonReader} and staged in a
+ * {@link DeprecatedApiMatcher.Builder}, so the whole document is never held in memory; the
+ * builder validates and indexes them in parallel once the input is read.
+ * The reader only checks that an entry is an object of string fields: every entry is staged with its
+ * position in the input, and the builder reports and skips the invalid ones without discarding the others.
+ */
+final class DeprecatedApiCatalogReader {
+
+    private static final Logger LOG = Loggers.get(DeprecatedApiCatalogReader.class);
+
+    private final DeprecatedApiMatcher.Builder builder;
+
+    /**
+     * Creates a reader adding every entry to the given builder.
+     *
+     * @param builder the matcher builder receiving the entries
+     */
+    DeprecatedApiCatalogReader(DeprecatedApiMatcher.Builder builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * Reads a JSON array of entries.
+     * If the document itself is malformed, the entries read before the error are kept.
+     *
+     * @param reader the reader positioned at the JSON array
+     * @param source a description of the input used in log messages
+     * @return the number of entries added to the builder
+     */
+    int read(Reader reader, String source) {
+        JsonReader jsonReader = new JsonReader(reader);
+        int index = 0;
+        try {
+            if (isBlank(jsonReader)) {
+                return 0;
+            }
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                readEntry(jsonReader, new CatalogCompiler.Origin(source, index));
+                index++;
+            }
+            jsonReader.endArray();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            LOG.warn("Failed to parse " + source + " after " + index + " entries. "
+                + "The entries read so far are used.", e);
+        }
+        return index;
+    }
+
+    private void readEntry(JsonReader jsonReader, CatalogCompiler.Origin origin) throws IOException {
+        if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+            jsonReader.skipValue();
+            builder.addUnreadable(origin, "not a JSON object");
+            return;
+        }
+        String fqcn = null;
+        String member = null;
+        String arguments = null;
+        String migration = null;
+        String note = null;
+        String message = null;
+        String problem = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String field = jsonReader.nextName();
+            if (!isKnownField(field)) {
+                jsonReader.skipValue();
+                continue;
+            }
+            JsonToken token = jsonReader.peek();
+            if (token == JsonToken.NULL) {
+                jsonReader.nextNull();
+                continue;
+            }
+            if (token != JsonToken.STRING) {
+                jsonReader.skipValue();
+                problem = "field '" + field + "' is not a string";
+                continue;
+            }
+            String value = jsonReader.nextString();
+            switch (field) {
+                case "fqcn":
+                    fqcn = value;
+                    break;
+                case "member":
+                    member = value;
+                    break;
+                case "arguments":
+                    arguments = value;
+                    break;
+                case "migration":
+                    migration = value;
+                    break;
+                case "note":
+                    note = value;
+                    break;
+                default:
+                    message = value;
+                    break;
+            }
+        }
+        jsonReader.endObject();
+        if (problem != null) {
+            builder.addUnreadable(origin, problem);
+        } else {
+            builder.add(origin, fqcn, member, arguments, migration, note, message);
+        }
+    }
+
+    private static boolean isKnownField(String field) {
+        return "fqcn".equals(field) || "member".equals(field) || "arguments".equals(field)
+            || "migration".equals(field) || "note".equals(field) || "message".equals(field);
+    }
+
+    private static boolean isBlank(JsonReader jsonReader) throws IOException {
+        try {
+            jsonReader.peek();
+            return false;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+}
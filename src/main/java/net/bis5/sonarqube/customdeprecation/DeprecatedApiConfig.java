@@ -12,11 +12,28 @@ import java.util.List;
  * Represents the metadata needed to identify and report usage of a specific deprecated API.
  */
 public class DeprecatedApiConfig {
+    private static final Gson GSON = new Gson();
+
     private String fqcn;
     private String member;
     private String arguments;
     private String migration;
     private String note;
+    private String message;
+
+    /**
+     * Creates an empty configuration, as used by JSON deserialization.
+     */
+    public DeprecatedApiConfig() {
+    }
+
+    DeprecatedApiConfig(String fqcn, String member, String arguments, String migration, String note) {
+        this.fqcn = fqcn;
+        this.member = member;
+        this.arguments = arguments;
+        this.migration = migration;
+        this.note = note;
+    }
 
     /**
      * Gets the fully qualified class name of the deprecated API.
@@ -65,8 +82,19 @@ public class DeprecatedApiConfig {
         return note;
     }
 
+    /**
+     * Gets the issue message template overriding the default message.
+     * See {@link IssueMessage} for the supported placeholders.
+     *
+     * @return the message template, or null for the default message
+     */
+    public String getMessage() {
+        return message;
+    }
+
     /**
      * Checks if this configuration matches the given target API.
+     * The configured fqcn and member may contain wildcards as described in {@link ApiPattern}.
      *
      * @param targetFqcn the fully qualified class name to check
      * @param targetMember the member name to check
@@ -77,7 +105,7 @@ public class DeprecatedApiConfig {
         if (targetFqcn == null || targetMember == null) {
             return false;
         }
-        if (!targetFqcn.equals(this.fqcn) || !targetMember.equals(this.member)) {
+        if (!matchesType(targetFqcn) || !matchesMember(targetMember)) {
             return false;
         }
         if (this.arguments == null || this.arguments.isEmpty()) {
@@ -86,6 +114,14 @@ public class DeprecatedApiConfig {
         return this.arguments.equals(targetArguments);
     }
 
+    private boolean matchesType(String targetFqcn) {
+        return ApiPattern.isPattern(fqcn) ? ApiPattern.matchesType(fqcn, targetFqcn) : targetFqcn.equals(fqcn);
+    }
+
+    private boolean matchesMember(String targetMember) {
+        return ApiPattern.isPattern(member) ? ApiPattern.matchesGlob(member, targetMember) : targetMember.equals(member);
+    }
+
     /**
      * Parses a JSON string into a list of DeprecatedApiConfig objects.
      *
@@ -97,7 +133,6 @@ public class DeprecatedApiConfig {
         if (jsonString == null || jsonString.trim().isEmpty()) {
             return Collections.emptyList();
         }
-        Gson gson = new Gson();
-        return gson.fromJson(jsonString, new TypeToken<List<DeprecatedApiConfig>>() {}.getType());
+        return GSON.fromJson(jsonString, new TypeToken<List<DeprecatedApiConfig>>() {}.getType());
     }
 }
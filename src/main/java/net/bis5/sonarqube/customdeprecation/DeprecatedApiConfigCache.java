@@ -0,0 +1,122 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.Objects;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Analysis-wide cache of compiled deprecated API configurations.
+ * The compiled matcher is keyed on the raw {@code deprecatedApis} value and the fingerprint of the
+ * optional catalog, and is rebuilt only when one of them changes, so every file (and every thread)
+ * analyzed with the same rule configuration shares a single parse result.
+ */
+final class DeprecatedApiConfigCache {
+
+    private static final Logger LOG = Loggers.get(DeprecatedApiConfigCache.class);
+
+    private static volatile Entry current;
+
+    private DeprecatedApiConfigCache() {
+    }
+
+    /**
+     * Returns the compiled configuration for the given JSON value, parsing and compiling it only
+     * if it differs from the value cached by a previous call.
+     * Malformed entries are logged once and left out of the cached configuration.
+     *
+     * @param jsonString the raw deprecatedApis rule parameter value
+     * @return the compiled matcher, never null
+     */
+    static DeprecatedApiMatcher get(String jsonString) {
+        return get(jsonString, null);
+    }
+
+    /**
+     * Returns the compiled configuration for the given JSON value merged with the given catalog.
+     * The entries of the rule parameter come first, followed by the entries of the catalog.
+     * A catalog that cannot be read is logged once and ignored.
+     *
+     * @param jsonString the raw deprecatedApis rule parameter value
+     * @param catalog the catalog configured for the analysis, may be null
+     * @return the compiled matcher, never null
+     */
+    static DeprecatedApiMatcher get(String jsonString, CatalogLocation catalog) {
+        return get(jsonString, catalog, null);
+    }
+
+    /**
+     * Returns the compiled configuration for the given JSON value merged with the given catalog,
+     * restoring it from the given directory of compiled catalogs when an earlier analysis stored it.
+     * Entries are only validated, and malformed ones only logged, when the configuration is compiled.
+     *
+     * @param jsonString the raw deprecatedApis rule parameter value
+     * @param catalog the catalog configured for the analysis, may be null
+     * @param storeDirectory the directory of compiled catalogs, or null to always compile
+     * @return the compiled matcher, never null
+     */
+    static DeprecatedApiMatcher get(String jsonString, CatalogLocation catalog, Path storeDirectory) {
+        String catalogFingerprint = catalog == null ? null : catalog.fingerprint();
+        Entry entry = current;
+        if (entry != null && entry.isFor(jsonString, catalogFingerprint)) {
+            return entry.matcher();
+        }
+        synchronized (DeprecatedApiConfigCache.class) {
+            entry = current;
+            if (entry == null || !entry.isFor(jsonString, catalogFingerprint)) {
+                entry = new Entry(jsonString, catalogFingerprint, load(jsonString, catalog, storeDirectory));
+                current = entry;
+            }
+            return entry.matcher();
+        }
+    }
+
+    private static DeprecatedApiMatcher load(String jsonString, CatalogLocation catalog, Path storeDirectory) {
+        if (storeDirectory == null) {
+            return compile(jsonString, catalog);
+        }
+        String key;
+        try {
+            key = CompiledCatalogStore.key(jsonString, catalog);
+        } catch (IOException e) {
+            // the catalog cannot be read: compiling reports it and falls back to the rule parameter
+            return compile(jsonString, catalog);
+        }
+        CompiledCatalogStore store = new CompiledCatalogStore(storeDirectory);
+        DeprecatedApiMatcher matcher = store.load(key);
+        if (matcher != null) {
+            LOG.debug("Restored the compiled deprecated API catalog from {}", store.fileFor(key));
+            return matcher;
+        }
+        matcher = compile(jsonString, catalog);
+        store.store(key, matcher);
+        return matcher;
+    }
+
+    private static DeprecatedApiMatcher compile(String jsonString, CatalogLocation catalog) {
+        DeprecatedApiMatcher.Builder builder = new DeprecatedApiMatcher.Builder();
+        DeprecatedApiCatalogReader reader = new DeprecatedApiCatalogReader(builder);
+        if (jsonString != null) {
+            reader.read(new StringReader(jsonString), "deprecatedApis rule parameter");
+        }
+        if (catalog != null) {
+            try (Reader catalogReader = catalog.open()) {
+                reader.read(catalogReader, "deprecated API catalog " + catalog);
+            } catch (IOException e) {
+                LOG.warn("Failed to read deprecated API catalog " + catalog + ". Only the rule parameter will be used.", e);
+            }
+        }
+        return builder.build();
+    }
+
+    private record Entry(String jsonString, String catalogFingerprint, DeprecatedApiMatcher matcher) {
+
+        boolean isFor(String otherJson, String otherFingerprint) {
+            return Objects.equals(jsonString, otherJson) && Objects.equals(catalogFingerprint, otherFingerprint);
+        }
+    }
+}
@@ -0,0 +1,439 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiled lookup structure for a list of deprecated API configurations.
+ * Configurations are indexed by fully qualified class name, then member name, then argument
+ * signature, so resolving a referenced API costs a few hash lookups regardless of the list size.
+ * Fqcn patterns such as {@code com.acme.legacy.**} are kept in a {@link TypePatternTrie} walked once
+ * per lookup, and member patterns such as {@code get*} in a {@link MemberPatternTrie} of the types they belong
+ * to. When several entries match, they are merged as they are found, without collecting them first.
+ * The result is always the entry compiled from the first configuration in list order for which
+ * {@link DeprecatedApiConfig#matches(String, String, String)} returns true.
+ * Entries are stored as {@link DeprecatedApi} instances sharing their text through a {@link StringPool}.
+ * Member names and fqcns are also summarized in {@link NameFilter}s, which reject most unconfigured
+ * names with a few bit probes before any set or map is consulted.
+ */
+final class DeprecatedApiMatcher {
+
+    /** Matcher that never matches anything. */
+    static final DeprecatedApiMatcher EMPTY =
+        new DeprecatedApiMatcher(Collections.emptyList(), Collections.emptyMap(), new TypePatternTrie());
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    private final List<DeprecatedApi> apis;
+    private final Map<String, TypeEntry> index;
+    private final TypePatternTrie patterns;
+    private final Set<String> memberNames = new HashSet<>();
+    private final MemberPatternTrie<Boolean> memberPatterns = new MemberPatternTrie<>();
+    private final ReferencePrefilter prefilter;
+    private final NameFilter memberFilter;
+    private final NameFilter typeFilter;
+
+    private DeprecatedApiMatcher(List<DeprecatedApi> apis, Map<String, TypeEntry> index, TypePatternTrie patterns) {
+        this.apis = apis;
+        this.index = index;
+        this.patterns = patterns;
+        Map<String, Set<String>> membersByType = new HashMap<>();
+        index.forEach((fqcn, type) -> membersByType.put(fqcn, type.members.keySet()));
+        Set<String> patternTypeMembers = new HashSet<>();
+        for (TypeEntry type : index.values()) {
+            memberNames.addAll(type.members.keySet());
+            type.memberPatterns.patterns().forEach(pattern -> memberPatterns.computeIfAbsent(pattern, k -> Boolean.TRUE));
+        }
+        for (TypeEntry type : patterns.entries()) {
+            memberNames.addAll(type.members.keySet());
+            type.memberPatterns.patterns().forEach(pattern -> memberPatterns.computeIfAbsent(pattern, k -> Boolean.TRUE));
+            patternTypeMembers.addAll(type.members.keySet());
+        }
+        if (!memberPatterns.isEmpty() || patternTypeMembers.contains(CONSTRUCTOR)) {
+            // neither a member pattern nor a constructor of a type pattern is spelled by a known name
+            this.prefilter = ReferencePrefilter.ALL;
+        } else {
+            this.prefilter = ReferencePrefilter.of(membersByType, patternTypeMembers);
+        }
+        // member patterns are looked up in their own trie, so the filter only answers for the exact names
+        this.memberFilter = NameFilter.of(memberNames);
+        this.typeFilter = patterns.isEmpty() ? NameFilter.of(index.keySet()) : NameFilter.ALL;
+    }
+
+    /**
+     * Compiles the given configurations into a matcher.
+     * Entries without fqcn or member can never match and are left out of the index.
+     *
+     * @param configs the configurations in priority order
+     * @return the compiled matcher
+     */
+    static DeprecatedApiMatcher compile(List<DeprecatedApiConfig> configs) {
+        if (configs == null || configs.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder();
+        configs.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Rebuilds a matcher from the entries of a matcher compiled earlier, see {@link #entries()}.
+     * The entries are indexed again but neither validated nor compiled.
+     *
+     * @param apis the entries in configuration order
+     * @return the matcher
+     */
+    static DeprecatedApiMatcher restore(List<DeprecatedApi> apis) {
+        return apis.isEmpty() ? EMPTY : of(CatalogCompiler.index(apis));
+    }
+
+    private static DeprecatedApiMatcher of(CatalogCompiler.Result result) {
+        if (result.index().isEmpty() && result.patterns().isEmpty()) {
+            return EMPTY;
+        }
+        return new DeprecatedApiMatcher(Collections.unmodifiableList(result.apis()), result.index(), result.patterns());
+    }
+
+    /**
+     * Gets the compiled entries this matcher was built from, including the entries shadowed by earlier ones.
+     *
+     * @return the entries in configuration order
+     */
+    List<DeprecatedApi> entries() {
+        return apis;
+    }
+
+    /**
+     * Checks whether this matcher contains no configuration at all.
+     *
+     * @return true if nothing can ever match
+     */
+    boolean isEmpty() {
+        return index.isEmpty() && patterns.isEmpty();
+    }
+
+    /**
+     * Checks whether any configuration names the given member, regardless of its fqcn.
+     * This lets callers drop most nodes by their simple name before resolving any symbol.
+     *
+     * @param member the simple member name
+     * @return true if at least one configuration uses this member name or a pattern matching it
+     */
+    boolean isConfiguredMember(String member) {
+        if (memberFilter.mightContain(member) && memberNames.contains(member)) {
+            return true;
+        }
+        return !memberPatterns.isEmpty() && memberPatterns.matches(member);
+    }
+
+    /**
+     * Gets the file-level filter derived from the configured fqcn and member names.
+     *
+     * @return the prefilter shared by every file analyzed with this matcher
+     */
+    ReferencePrefilter prefilter() {
+        return prefilter;
+    }
+
+    /**
+     * Finds the entry matching the given API.
+     *
+     * @param fqcn the fully qualified class name of the referenced API
+     * @param member the member name of the referenced API
+     * @param arguments the argument signature, or null when not applicable
+     * @return the matching entry, or null if none matches
+     */
+    DeprecatedApi match(String fqcn, String member, ArgumentSignature arguments) {
+        MemberEntry entry = find(fqcn, member);
+        return entry == null ? null : entry.match(arguments);
+    }
+
+    /**
+     * Finds the configurations registered for the given fqcn and member pair.
+     * Callers can use the returned entry to decide whether an argument signature is needed
+     * before computing it. When several patterns match the pair, their entries are merged in
+     * configuration order.
+     *
+     * @param fqcn the fully qualified class name of the referenced API
+     * @param member the member name of the referenced API
+     * @return the entry for the pair, or null if no configuration names it
+     */
+    MemberEntry find(String fqcn, String member) {
+        if (fqcn == null || member == null || !typeFilter.mightContain(fqcn)) {
+            return null;
+        }
+        TypeEntry type = index.get(fqcn);
+        MemberEntry found = type == null ? null : type.find(member, null);
+        return patterns.isEmpty() ? found : patterns.find(fqcn, member, found);
+    }
+
+    /**
+     * Gets the entries that can match members of the given type.
+     * Callers resolving many members of the same type keep the bucket, so that each lookup is a
+     * member lookup only, without the fqcn lookup and the pattern walk.
+     *
+     * @param fqcn the fully qualified class name of a type
+     * @return the bucket, or null if no configuration targets the type
+     */
+    TypeBucket bucket(String fqcn) {
+        if (fqcn == null || !typeFilter.mightContain(fqcn)) {
+            return null;
+        }
+        TypeEntry type = index.get(fqcn);
+        if (patterns.isEmpty()) {
+            return type == null ? null : new TypeBucket(List.of(type));
+        }
+        List<TypeEntry> types = new ArrayList<>();
+        if (type != null) {
+            types.add(type);
+        }
+        patterns.collectTypes(fqcn, types);
+        return types.isEmpty() ? null : new TypeBucket(types);
+    }
+
+    /**
+     * Entries of the exact fqcn and of the fqcn patterns matching a single type.
+     */
+    static final class TypeBucket {
+        private final List<TypeEntry> types;
+
+        private TypeBucket(List<TypeEntry> types) {
+            this.types = types;
+        }
+
+        /**
+         * Finds the configurations registered for a member of the type.
+         *
+         * @param member the member name
+         * @return the entry for the member, or null if no configuration names it
+         */
+        MemberEntry find(String member) {
+            MemberEntry found = null;
+            for (int i = 0; i < types.size(); i++) {
+                found = types.get(i).find(member, found);
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Incremental builder adding configurations one at a time, in priority order.
+     * Entries are only staged when added; {@link #build()} validates and indexes them with a
+     * {@link CatalogCompiler}.
+     */
+    static final class Builder {
+        private final List<CatalogCompiler.Entry> entries = new ArrayList<>();
+        private int order;
+
+        /**
+         * Adds the next configuration.
+         *
+         * @param config the configuration, may be null
+         * @return this builder
+         */
+        Builder add(DeprecatedApiConfig config) {
+            if (config == null) {
+                order++;
+                return this;
+            }
+            return add(config.getFqcn(), config.getMember(), config.getArguments(), config.getMigration(), config.getNote(),
+                config.getMessage());
+        }
+
+        /**
+         * Adds the next configuration from its fields, using the default issue message.
+         *
+         * @param fqcn the fully qualified class name or fqcn pattern
+         * @param member the member name or member pattern
+         * @param arguments the source-style argument list, null or empty for all overloads
+         * @param migration the migration message
+         * @param note the note
+         * @return this builder
+         */
+        Builder add(String fqcn, String member, String arguments, String migration, String note) {
+            return add(fqcn, member, arguments, migration, note, null);
+        }
+
+        /**
+         * Adds the next configuration from its fields.
+         * Entries with a missing or malformed fqcn or member, or with an argument list that is not
+         * enclosed in parentheses, can never match; they are reported and left out of the index.
+         *
+         * @param fqcn the fully qualified class name or fqcn pattern
+         * @param member the member name or member pattern
+         * @param arguments the source-style argument list, null or empty for all overloads
+         * @param migration the migration message
+         * @param note the note
+         * @param message the issue message template, or null for the default message
+         * @return this builder
+         */
+        Builder add(String fqcn, String member, String arguments, String migration, String note, String message) {
+            entries.add(new CatalogCompiler.Entry(order++, fqcn, member, arguments, migration, note, message));
+            return this;
+        }
+
+        /**
+         * Adds the next configuration read from an input, named by its position in the input in warnings.
+         * The entry is validated when the matcher is built, like the entries added from their fields.
+         *
+         * @param origin the position of the entry in the input
+         * @param fqcn the fully qualified class name or fqcn pattern, may be null
+         * @param member the member name or member pattern, may be null
+         * @param arguments the source-style argument list, null or empty for all overloads
+         * @param migration the migration message
+         * @param note the note
+         * @param message the issue message template, or null for the default message
+         * @return this builder
+         */
+        Builder add(CatalogCompiler.Origin origin, String fqcn, String member, String arguments, String migration,
+            String note, String message) {
+            entries.add(new CatalogCompiler.Entry(order++, origin, fqcn, member, arguments, migration, note, message, null));
+            return this;
+        }
+
+        /**
+         * Adds the next entry of an input that could not be read; it is reported when the matcher is built.
+         *
+         * @param origin the position of the entry in the input
+         * @param problem why the entry could not be read
+         * @return this builder
+         */
+        Builder addUnreadable(CatalogCompiler.Origin origin, String problem) {
+            entries.add(new CatalogCompiler.Entry(order++, origin, null, null, null, null, null, null, problem));
+            return this;
+        }
+
+        /**
+         * Validates and compiles the configurations added so far.
+         *
+         * @return the compiled catalog, with the number of entries left out by validation
+         */
+        CatalogCompiler.Result compile() {
+            return CatalogCompiler.compile(entries);
+        }
+
+        /**
+         * Builds the matcher from the configurations added so far.
+         *
+         * @return the compiled matcher
+         */
+        DeprecatedApiMatcher build() {
+            return of(compile());
+        }
+    }
+
+    /**
+     * Entries registered for a single fqcn or fqcn pattern, keyed by member name or member pattern.
+     */
+    static final class TypeEntry {
+        private final Map<String, MemberEntry> members = new HashMap<>();
+        private final MemberPatternTrie<MemberEntry> memberPatterns = new MemberPatternTrie<>();
+
+        /**
+         * Adds an entry, which must come after every entry added so far in configuration order.
+         *
+         * @param api the entry
+         * @return the earlier entry hiding the added one, or null if the added one can match
+         */
+        DeprecatedApi add(DeprecatedApi api) {
+            MemberEntry entry = ApiPattern.isPattern(api.member())
+                ? memberPatterns.computeIfAbsent(api.member(), k -> new MemberEntry())
+                : members.computeIfAbsent(api.member(), k -> new MemberEntry());
+            return entry.add(api);
+        }
+
+        /**
+         * Merges the entries of this type matching the given member name into the entry found so far.
+         *
+         * @param member the member name
+         * @param found the entry found so far, or null
+         * @return the merged entry, or null if nothing matched so far
+         */
+        MemberEntry find(String member, MemberEntry found) {
+            MemberEntry merged = MemberEntry.merge(found, members.get(member));
+            return memberPatterns.isEmpty() ? merged : memberPatterns.fold(member, merged, MemberEntry::merge);
+        }
+    }
+
+    /**
+     * Entries registered for a single fqcn and member pair.
+     */
+    static final class MemberEntry {
+        private DeprecatedApi allOverloads;
+        private Map<ArgumentSignature, DeprecatedApi> bySignature = Collections.emptyMap();
+
+        private DeprecatedApi add(DeprecatedApi api) {
+            if (allOverloads != null) {
+                // shadowed by an earlier entry matching every overload
+                return allOverloads;
+            }
+            if (api.signature() == null) {
+                allOverloads = api;
+                return null;
+            }
+            if (bySignature.isEmpty()) {
+                bySignature = new HashMap<>();
+            }
+            return bySignature.putIfAbsent(api.signature(), api);
+        }
+
+        /**
+         * Checks whether any entry names explicit arguments, i.e. whether
+         * {@link #match(ArgumentSignature)} can return a different result depending on the signature.
+         *
+         * @return true if the argument signature must be computed before matching
+         */
+        boolean needsArguments() {
+            return !bySignature.isEmpty();
+        }
+
+        /**
+         * Finds the entry matching the given argument signature.
+         *
+         * @param arguments the argument signature, or null when not applicable
+         * @return the matching entry, or null if none matches
+         */
+        DeprecatedApi match(ArgumentSignature arguments) {
+            DeprecatedApi specific = arguments == null ? null : bySignature.get(arguments);
+            if (specific != null && (allOverloads == null || specific.order() < allOverloads.order())) {
+                return specific;
+            }
+            return allOverloads;
+        }
+
+        /**
+         * Merges two entries matching the same reference. The entries hidden by an earlier one are left out,
+         * and remain so when the result is merged with further entries.
+         *
+         * @param first the first entry, may be null
+         * @param second the second entry, may be null
+         * @return the merged entry, or null if both are null
+         */
+        private static MemberEntry merge(MemberEntry first, MemberEntry second) {
+            if (first == null) {
+                return second;
+            }
+            if (second == null || second == first) {
+                return first;
+            }
+            List<DeprecatedApi> apis = new ArrayList<>();
+            for (MemberEntry entry : List.of(first, second)) {
+                if (entry.allOverloads != null) {
+                    apis.add(entry.allOverloads);
+                }
+                apis.addAll(entry.bySignature.values());
+            }
+            apis.sort(Comparator.comparingInt(DeprecatedApi::order));
+            MemberEntry merged = new MemberEntry();
+            apis.forEach(merged::add);
+            return merged;
+        }
+    }
+}
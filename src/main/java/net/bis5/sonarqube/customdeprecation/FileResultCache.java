@@ -0,0 +1,454 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.java.api.location.Position;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Local cache of the issues raised in every file, used to skip the files that did not change since
+ * the previous analysis.
+ * A file result is reused when the file content, the configuration and the compiled classes of the
+ * types the file resolved configured members on are all unchanged; its issues are then replayed on the
+ * nodes found at the cached positions, without resolving any symbol.
+ *
+ * <p>The cache is one file per module in the cache directory, tagged with the configuration key: a change to the rule
+ * parameter, the catalog or the rule properties discards every result at once. Types are tracked by
+ * the size and modification time of their class file among the project binaries. Library types are not
+ * found there and are covered by the {@link #libraryStamp(List) stamp of the library files}, which is part of
+ * the configuration key. Besides the owners of the resolved members, a file depends on the types that select
+ * the resolved overload: the declared types of its receivers, parameters and arguments.</p>
+ */
+final class FileResultCache {
+
+    private static final Logger LOG = Loggers.get(FileResultCache.class);
+
+    private static final int MAGIC = 0x43444652;
+    private static final int FORMAT_VERSION = 3;
+
+    /** Start of the name of the cache files in the cache directory. */
+    static final String FILE_PREFIX = "custom-deprecation-results";
+
+    /**
+     * Issue raised in a file, located by the kind and the first and last tokens of its node.
+     *
+     * @param kind the kind of the reported node
+     * @param line the line of the first token
+     * @param column the column of the first token
+     * @param endLine the line of the last token
+     * @param endColumn the column of the last token
+     * @param api the configuration order of the matched entry
+     * @param message the issue message
+     */
+    record CachedIssue(Tree.Kind kind, int line, int column, int endLine, int endColumn, int api, String message) {
+
+        /**
+         * Records an issue reported on the given node.
+         *
+         * @param tree the reported node
+         * @param api the configuration order of the matched entry
+         * @param message the issue message
+         * @return the cached issue
+         */
+        static CachedIssue of(Tree tree, int api, String message) {
+            Position first = tree.firstToken().range().start();
+            Position last = tree.lastToken().range().start();
+            return new CachedIssue(tree.kind(), first.line(), first.columnOffset(), last.line(), last.columnOffset(), api,
+                message);
+        }
+
+        private boolean matches(Tree tree, Position first, Position last) {
+            return tree.kind() == kind && first.line() == line && first.columnOffset() == column && last.line() == endLine
+                && last.columnOffset() == endColumn;
+        }
+
+        private boolean within(Position first, Position last) {
+            return compare(first.line(), first.columnOffset(), line, column) <= 0
+                && compare(endLine, endColumn, last.line(), last.columnOffset()) <= 0;
+        }
+
+        private static int compare(int line, int column, int otherLine, int otherColumn) {
+            return line != otherLine ? Integer.compare(line, otherLine) : Integer.compare(column, otherColumn);
+        }
+    }
+
+    /**
+     * Result of the analysis of one file.
+     *
+     * @param contentHash the hash of the file content
+     * @param dependencies the fqcns of the types the file resolved configured members on, sorted
+     * @param dependencyHash the hash of the class files of the dependencies when the file was analyzed
+     * @param issues the issues raised in the file
+     */
+    record FileResult(String contentHash, List<String> dependencies, String dependencyHash, List<CachedIssue> issues) {
+    }
+
+    private final Path file;
+    private final String configurationKey;
+    private final List<Path> binaries;
+    private final Map<String, FileResult> previous;
+    private final Map<String, FileResult> current = new ConcurrentHashMap<>();
+    private final Map<String, String> classStamps = new ConcurrentHashMap<>();
+
+    private FileResultCache(Path file, String configurationKey, List<Path> binaries, Map<String, FileResult> previous) {
+        this.file = file;
+        this.configurationKey = configurationKey;
+        this.binaries = binaries;
+        this.previous = previous;
+    }
+
+    /**
+     * Gets the name of the cache file of a module, so that the modules of an analysis sharing the cache directory
+     * keep their own results.
+     *
+     * @param module the key of the module
+     * @return the file name
+     */
+    static String fileName(String module) {
+        return StoreFiles.moduleFileName(FILE_PREFIX, module, ".bin");
+    }
+
+    /**
+     * Loads the results of the previous analysis stored in the given directory.
+     * Results stored for another configuration, or that cannot be read, are ignored.
+     *
+     * @param directory the cache directory
+     * @param module the key of the analyzed module, naming its cache file
+     * @param configurationKey the key of the current configuration, see {@link #configurationKey(String...)}
+     * @param binaries the binaries directories of the project
+     * @return the cache, possibly empty
+     */
+    static FileResultCache load(Path directory, String module, String configurationKey, List<Path> binaries) {
+        Path file = directory.resolve(fileName(module));
+        Map<String, FileResult> previous = new ConcurrentHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION && configurationKey.equals(in.readUTF())) {
+                readResults(in, previous);
+            } else {
+                LOG.info("The configuration changed since the previous analysis; every file is analyzed.");
+            }
+        } catch (NoSuchFileException e) {
+            // first analysis
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Failed to read the result cache " + file + "; every file is analyzed.", e);
+            previous.clear();
+        }
+        return new FileResultCache(file, configurationKey, binaries, previous);
+    }
+
+    /**
+     * Hashes the parts of the configuration that the results depend on.
+     *
+     * @param parts the parts, e.g. the catalog key and the rule properties
+     * @return the configuration key
+     */
+    static String configurationKey(String... parts) {
+        MessageDigest digest = StoreFiles.sha256();
+        for (String part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return StoreFiles.hex(digest.digest());
+    }
+
+    /**
+     * Stamps the libraries of the project with the size and modification time of their files, so that a part of
+     * the configuration key changes when a library is replaced even if its path does not.
+     * Directories stand for every file under them, and patterns for every file they match, as in
+     * {@code sonar.java.libraries}.
+     *
+     * @param libraries the absolute library paths, which may be directories or glob patterns
+     * @return the stamp of the library files
+     */
+    static String libraryStamp(List<String> libraries) {
+        StringBuilder stamp = new StringBuilder();
+        for (String library : libraries) {
+            stamp.append(library).append('\n');
+            for (Path path : libraryFiles(library)) {
+                stamp.append(fileStamp(path.toString(), path)).append('\n');
+            }
+        }
+        return stamp.toString();
+    }
+
+    /**
+     * Hashes the content of a file.
+     *
+     * @param content the file content
+     * @return the content hash
+     */
+    static String contentHash(String content) {
+        return StoreFiles.hex(StoreFiles.sha256().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Gets the result of the previous analysis of a file, if it is still valid.
+     *
+     * @param fileKey the key of the file
+     * @param contentHash the hash of the current file content
+     * @return the result, or null if the file must be analyzed
+     */
+    FileResult lookup(String fileKey, String contentHash) {
+        FileResult result = previous.get(fileKey);
+        if (result == null || !result.contentHash().equals(contentHash)
+            || !result.dependencyHash().equals(dependencyHash(result.dependencies()))) {
+            return null;
+        }
+        current.put(fileKey, result);
+        return result;
+    }
+
+    /**
+     * Records the result of the analysis of a file.
+     *
+     * @param fileKey the key of the file
+     * @param contentHash the hash of the file content
+     * @param dependencies the fqcns of the types the file resolved configured members on
+     * @param issues the issues raised in the file
+     */
+    void put(String fileKey, String contentHash, Collection<String> dependencies, List<CachedIssue> issues) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(dependencies));
+        current.put(fileKey, new FileResult(contentHash, sorted, dependencyHash(sorted), List.copyOf(issues)));
+    }
+
+    /**
+     * Writes the results of the files seen in this analysis, replacing the previous cache file.
+     * Files that were not seen, e.g. deleted ones, are dropped.
+     */
+    void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporary = Files.createTempFile(file.getParent(), FILE_PREFIX, ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(configurationKey);
+                    writeResults(out, current);
+                }
+                StoreFiles.replace(temporary, file);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to write the result cache " + file + ".", e);
+        }
+    }
+
+    /**
+     * Gets the number of files whose previous result was reused in this analysis.
+     *
+     * @return the number of reused results
+     */
+    int reusedResults() {
+        return (int) current.entrySet().stream().filter(entry -> previous.get(entry.getKey()) == entry.getValue()).count();
+    }
+
+    /**
+     * Finds the nodes the given issues were reported on.
+     * Only the subtrees spanning a cached position are visited.
+     *
+     * @param root the root of the file
+     * @param issues the cached issues
+     * @return the node of each issue, in the same order, or null if any issue cannot be located
+     */
+    static List<Tree> locate(Tree root, List<CachedIssue> issues) {
+        if (issues.isEmpty()) {
+            return List.of();
+        }
+        Locator locator = new Locator(issues);
+        locator.locate(root);
+        List<Tree> trees = new ArrayList<>(issues.size());
+        for (Tree tree : locator.found) {
+            if (tree == null) {
+                return null;
+            }
+            trees.add(tree);
+        }
+        return trees;
+    }
+
+    private String dependencyHash(List<String> dependencies) {
+        MessageDigest digest = StoreFiles.sha256();
+        for (String fqcn : dependencies) {
+            digest.update(classStamps.computeIfAbsent(fqcn, this::classStamp).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return StoreFiles.hex(digest.digest());
+    }
+
+    private String classStamp(String fqcn) {
+        String relativePath = fqcn.replace('.', '/') + ".class";
+        for (Path root : binaries) {
+            Path classFile = root.resolve(relativePath);
+            if (Files.isRegularFile(classFile)) {
+                return fileStamp(fqcn, classFile);
+            }
+        }
+        return fqcn + "|-";
+    }
+
+    private static String fileStamp(String name, Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return name + '|' + attributes.size() + '|' + attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return name + "|-";
+        }
+    }
+
+    /**
+     * Lists the files of a library: the file itself, the files under a directory, or the files matching a glob
+     * pattern, walked from the directory holding its first wildcard.
+     *
+     * @param library the library path or pattern
+     * @return the files, sorted, or empty if the library cannot be listed
+     */
+    static List<Path> libraryFiles(String library) {
+        String pattern = library.replace('\\', '/');
+        int wildcard = indexOfWildcard(pattern);
+        Path root;
+        PathMatcher matcher;
+        if (wildcard < 0) {
+            root = Paths.get(library);
+            if (!Files.isDirectory(root)) {
+                return List.of(root);
+            }
+            matcher = path -> true;
+        } else {
+            // walk from the directory holding the first wildcard
+            root = Paths.get(pattern.substring(0, Math.max(0, pattern.lastIndexOf('/', wildcard))));
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).filter(matcher::matches).sorted().collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            // a missing library is stamped by its path only
+            return List.of();
+        }
+    }
+
+    private static int indexOfWildcard(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void readResults(DataInputStream in, Map<String, FileResult> results) throws IOException {
+        Tree.Kind[] kinds = Tree.Kind.values();
+        int files = in.readInt();
+        for (int i = 0; i < files; i++) {
+            String fileKey = in.readUTF();
+            String contentHash = in.readUTF();
+            List<String> dependencies = new ArrayList<>();
+            for (int j = in.readInt(); j > 0; j--) {
+                dependencies.add(in.readUTF());
+            }
+            String dependencyHash = in.readUTF();
+            List<CachedIssue> issues = new ArrayList<>();
+            for (int j = in.readInt(); j > 0; j--) {
+                issues.add(new CachedIssue(Tree.Kind.valueOf(in.readUTF()), in.readInt(), in.readInt(), in.readInt(),
+                    in.readInt(), in.readInt(), in.readUTF()));
+            }
+            results.put(fileKey, new FileResult(contentHash, dependencies, dependencyHash, issues));
+        }
+    }
+
+    private static void writeResults(DataOutputStream out, Map<String, FileResult> results) throws IOException {
+        out.writeInt(results.size());
+        for (Map.Entry<String, FileResult> entry : results.entrySet()) {
+            FileResult result = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeUTF(result.contentHash());
+            out.writeInt(result.dependencies().size());
+            for (String dependency : result.dependencies()) {
+                out.writeUTF(dependency);
+            }
+            out.writeUTF(result.dependencyHash());
+            out.writeInt(result.issues().size());
+            for (CachedIssue issue : result.issues()) {
+                out.writeUTF(issue.kind().name());
+                out.writeInt(issue.line());
+                out.writeInt(issue.column());
+                out.writeInt(issue.endLine());
+                out.writeInt(issue.endColumn());
+                out.writeInt(issue.api());
+                out.writeUTF(issue.message());
+            }
+        }
+    }
+
+    private static final class Locator extends BaseTreeVisitor {
+        private final List<CachedIssue> issues;
+        private final Tree[] found;
+        private int pending;
+
+        private Locator(List<CachedIssue> issues) {
+            this.issues = issues;
+            this.found = new Tree[issues.size()];
+            this.pending = issues.size();
+        }
+
+        private void locate(Tree root) {
+            scan(root);
+        }
+
+        @Override
+        protected void scan(Tree tree) {
+            if (tree == null || pending == 0) {
+                return;
+            }
+            SyntaxToken firstToken = tree.firstToken();
+            SyntaxToken lastToken = tree.lastToken();
+            if (firstToken == null || lastToken == null) {
+                return;
+            }
+            Position first = firstToken.range().start();
+            Position last = lastToken.range().start();
+            boolean spansIssue = false;
+            for (int i = 0; i < found.length; i++) {
+                CachedIssue issue = issues.get(i);
+                if (found[i] == null && issue.within(first, last)) {
+                    spansIssue = true;
+                    if (issue.matches(tree, first, last)) {
+                        found[i] = tree;
+                        pending--;
+                    }
+                }
+            }
+            if (spansIssue) {
+                super.scan(tree);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Issue message of a deprecated API entry, compiled once when the catalog is compiled.
+ * The default message and templates using only entry fields are fully rendered upfront. Templates
+ * referring to the reference site are split into literal parts and placeholders, so that raising an
+ * issue only fills in the variable parts.
+ *
+ * <p>Supported placeholders are {@code {fqcn}}, {@code {member}}, {@code {arguments}} (the configured
+ * argument list), {@code {migration}} and {@code {note}}, which are taken from the entry, and
+ * {@code {signature}} (the argument list of the referenced method or constructor) and
+ * {@code {enclosingClass}} (the fully qualified name of the class containing the reference), which
+ * are filled in per issue. Any other text in braces is kept as is.</p>
+ */
+final class IssueMessage {
+
+    /** Placeholders whose value depends on the reference site. */
+    enum Placeholder {
+        SIGNATURE("{signature}", 'S'),
+        ENCLOSING_CLASS("{enclosingClass}", 'E');
+
+        private final String token;
+
+        /** Code persisted in compiled catalogs, which must not change when placeholders are added or reordered. */
+        private final char code;
+
+        Placeholder(String token, char code) {
+            this.token = token;
+            this.code = code;
+        }
+
+        /**
+         * Gets the code identifying this placeholder in compiled catalogs.
+         *
+         * @return the persisted code
+         */
+        char code() {
+            return code;
+        }
+
+        /**
+         * Gets the placeholder identified by a persisted code.
+         *
+         * @param code the persisted code
+         * @return the placeholder
+         * @throws IllegalArgumentException if no placeholder has this code
+         */
+        static Placeholder ofCode(char code) {
+            for (Placeholder placeholder : values()) {
+                if (placeholder.code == code) {
+                    return placeholder;
+                }
+            }
+            throw new IllegalArgumentException("Unknown placeholder code " + code);
+        }
+
+        private static Placeholder of(String token) {
+            for (Placeholder placeholder : values()) {
+                if (placeholder.token.equals(token)) {
+                    return placeholder;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final String DEFAULT_PREFIX = "This API is deprecated for this project. ";
+
+    private final String constant;
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+
+    private IssueMessage(String constant, String[] literals, Placeholder[] placeholders) {
+        this.constant = constant;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Compiles the message of an entry.
+     *
+     * @param template the message template, or null for the default message
+     * @param fqcn the configured fqcn
+     * @param member the configured member
+     * @param signature the configured argument signature, or null for all overloads
+     * @param migration the migration message
+     * @param note the note
+     * @return the compiled message
+     */
+    static IssueMessage compile(String template, String fqcn, String member, ArgumentSignature signature,
+        String migration, String note) {
+        if (template == null || template.isEmpty()) {
+            String suffix = (note != null && !note.isEmpty()) ? " (" + note + ")" : "";
+            return new IssueMessage(DEFAULT_PREFIX + nullToEmpty(migration) + suffix, null, null);
+        }
+        Map<String, String> entryValues = Map.of(
+            "{fqcn}", fqcn,
+            "{member}", member,
+            "{arguments}", signature == null ? "" : signature.toString(),
+            "{migration}", nullToEmpty(migration),
+            "{note}", nullToEmpty(note));
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int start = 0;
+        int brace = template.indexOf('{');
+        while (brace >= 0) {
+            int end = template.indexOf('}', brace);
+            if (end < 0) {
+                break;
+            }
+            String token = template.substring(brace, end + 1);
+            String entryValue = entryValues.get(token);
+            Placeholder placeholder = Placeholder.of(token);
+            if (entryValue != null || placeholder != null) {
+                literal.append(template, start, brace);
+                start = end + 1;
+                if (entryValue != null) {
+                    literal.append(entryValue);
+                } else {
+                    literals.add(literal.toString());
+                    placeholders.add(placeholder);
+                    literal.setLength(0);
+                }
+                brace = template.indexOf('{', start);
+            } else {
+                brace = template.indexOf('{', brace + 1);
+            }
+        }
+        literal.append(template, start, template.length());
+        if (placeholders.isEmpty()) {
+            return new IssueMessage(literal.toString(), null, null);
+        }
+        literals.add(literal.toString());
+        return new IssueMessage(null, literals.toArray(new String[0]), placeholders.toArray(new Placeholder[0]));
+    }
+
+    /**
+     * Recreates a message from the parts of a message compiled earlier.
+     *
+     * @param constant the fully rendered message, or null for a template
+     * @param literals the literal parts of a template, one more than its placeholders
+     * @param placeholders the placeholders of a template
+     * @return the message
+     */
+    static IssueMessage restore(String constant, String[] literals, Placeholder[] placeholders) {
+        return constant != null ? new IssueMessage(constant, null, null) : new IssueMessage(null, literals, placeholders);
+    }
+
+    /**
+     * Checks whether the message is the same for every issue of the entry.
+     *
+     * @return true if {@link #constant()} can be used
+     */
+    boolean isConstant() {
+        return constant != null;
+    }
+
+    /**
+     * Gets the fully rendered message.
+     *
+     * @return the message, or null if it depends on the reference site
+     */
+    String constant() {
+        return constant;
+    }
+
+    /**
+     * Gets the literal parts of a template: the text before, between and after its placeholders.
+     *
+     * @return the literals, or null if the message is constant
+     */
+    String[] literals() {
+        return literals == null ? null : literals.clone();
+    }
+
+    /**
+     * Gets the placeholders of a template.
+     *
+     * @return the placeholders, or null if the message is constant
+     */
+    Placeholder[] placeholders() {
+        return placeholders == null ? null : placeholders.clone();
+    }
+
+    /**
+     * Renders the message for one issue.
+     *
+     * @param values the value of each placeholder at the reference site, only called for placeholders in use
+     * @return the message
+     */
+    String format(Function<Placeholder, String> values) {
+        if (constant != null) {
+            return constant;
+        }
+        StringBuilder message = new StringBuilder(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            message.append(nullToEmpty(values.apply(placeholders[i]))).append(literals[i + 1]);
+        }
+        return message.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof IssueMessage other && Objects.equals(constant, other.constant)
+            && Arrays.equals(literals, other.literals) && Arrays.equals(placeholders, other.placeholders);
+    }
+
+    @Override
+    public int hashCode() {
+        return constant != null ? constant.hashCode() : 31 * Arrays.hashCode(literals) + Arrays.hashCode(placeholders);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,131 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Trie of member patterns keyed by the characters of their literal prefix, i.e. the text before their first
+ * wildcard, e.g. {@code get} for {@code get*Id}.
+ * A lookup follows the characters of the member name from the root and only tests the patterns stored on the
+ * nodes on its path, whose prefix the name starts with, so its cost depends on the length of the name and on
+ * the patterns sharing its prefix rather than on the number of configured patterns.
+ *
+ * @param <V> the type of the value of each pattern
+ */
+final class MemberPatternTrie<V> {
+
+    private final Node<V> root = new Node<>();
+    private final Map<String, V> values = new LinkedHashMap<>();
+
+    /**
+     * Gets the value of the given pattern, creating it if needed.
+     *
+     * @param pattern the member pattern
+     * @param factory creates the value of a new pattern
+     * @return the value of the pattern
+     */
+    V computeIfAbsent(String pattern, Function<String, V> factory) {
+        V value = values.get(pattern);
+        if (value == null) {
+            value = factory.apply(pattern);
+            values.put(pattern, value);
+            int star = pattern.indexOf('*');
+            Node<V> node = root;
+            for (int i = 0; i < (star < 0 ? pattern.length() : star); i++) {
+                node = node.child(pattern.charAt(i));
+            }
+            node.add(pattern, value);
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether no pattern has been added.
+     *
+     * @return true if the trie is empty
+     */
+    boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Gets the patterns of the trie.
+     *
+     * @return the patterns, in the order they were first added
+     */
+    Set<String> patterns() {
+        return Collections.unmodifiableSet(values.keySet());
+    }
+
+    /**
+     * Checks whether any pattern matches the given member name.
+     *
+     * @param name the member name
+     * @return true if at least one pattern matches
+     */
+    boolean matches(String name) {
+        Node<V> node = root;
+        for (int i = 0; node != null; i++) {
+            for (int j = 0; j < node.patterns.size(); j++) {
+                if (ApiPattern.matchesGlob(node.patterns.get(j), name)) {
+                    return true;
+                }
+            }
+            node = i < name.length() ? node.children.get(name.charAt(i)) : null;
+        }
+        return false;
+    }
+
+    /**
+     * Combines the values of the patterns matching the given member name, without collecting them first.
+     *
+     * @param name the member name
+     * @param initial the initial result, returned when no pattern matches
+     * @param combine combines the result so far with the value of a matching pattern
+     * @param <A> the type of the result
+     * @return the combined result
+     */
+    <A> A fold(String name, A initial, BiFunction<A, V, A> combine) {
+        A result = initial;
+        Node<V> node = root;
+        for (int i = 0; node != null; i++) {
+            for (int j = 0; j < node.patterns.size(); j++) {
+                if (ApiPattern.matchesGlob(node.patterns.get(j), name)) {
+                    result = combine.apply(result, node.values.get(j));
+                }
+            }
+            node = i < name.length() ? node.children.get(name.charAt(i)) : null;
+        }
+        return result;
+    }
+
+    private static final class Node<V> {
+        private Map<Character, Node<V>> children = Collections.emptyMap();
+        private List<String> patterns = Collections.emptyList();
+        private List<V> values = Collections.emptyList();
+
+        private Node<V> child(char c) {
+            if (children.isEmpty()) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(c, k -> new Node<>());
+        }
+
+        private void add(String pattern, V value) {
+            if (patterns.isEmpty()) {
+                patterns = new ArrayList<>();
+                values = new ArrayList<>();
+            }
+            patterns.add(pattern);
+            values.add(value);
+        }
+    }
+}
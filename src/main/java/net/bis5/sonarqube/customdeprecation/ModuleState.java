@@ -0,0 +1,265 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * State of the analysis of a module that outlives a single file: the scan metrics, the bytecode pre-scan,
+ * the result cache, the usage inventory and the issue counts behind {@code maxIssuesPerApi}.
+ * The checks created for a module share the state published for it, and the checks analyzing the files of a module
+ * in parallel share one, so every method is safe to call from several threads.
+ */
+final class ModuleState {
+
+    private static final Logger LOG = Loggers.get(ModuleState.class);
+
+    /** State of the module being analyzed, published before the checks of the module are created. */
+    private static volatile ModuleState current;
+
+    /** Root project working directory seen by the checks, where the reports of the module are written. */
+    private volatile File reportDirectory;
+
+    private final CheckMetrics metrics;
+
+    private BytecodePrescan prescan;
+
+    private DeprecatedApiMatcher prescanMatcher;
+
+    private FileResultCache resultCache;
+
+    private DeprecatedApiMatcher resultCacheMatcher;
+
+    private UsageInventory inventory;
+
+    /** Whether the inventory was written or failed, so it is not opened again. */
+    private boolean inventoryDone;
+
+    /** Issues raised in the module by entry order, when capped. */
+    private final Map<Integer, Integer> raisedIssues = new HashMap<>();
+
+    private int cappedIssues;
+
+    /** Warnings already logged for the module, so checks sharing the state log each of them once. */
+    private final Set<String> warnings = new HashSet<>();
+
+    private int maxIssuesPerApi;
+
+    ModuleState(List<Tree.Kind> kinds) {
+        this.metrics = new CheckMetrics(kinds);
+    }
+
+    /**
+     * Publishes a new state for the module about to be analyzed, shared by the checks created until the analysis
+     * of the module is finished.
+     *
+     * @return the published state
+     */
+    static ModuleState startModule() {
+        ModuleState state = new ModuleState(CustomDeprecationCheck.NODES_TO_VISIT);
+        current = state;
+        return state;
+    }
+
+    /**
+     * Gets the state of the module being analyzed.
+     *
+     * @return the published state, or a new state owned by the caller if none is published
+     */
+    static ModuleState current() {
+        ModuleState state = current;
+        return state == null ? new ModuleState(CustomDeprecationCheck.NODES_TO_VISIT) : state;
+    }
+
+    /**
+     * Takes the state of the module being analyzed, so the checks of the next module start from a new one.
+     *
+     * @return the published state, or null if none is published
+     */
+    static ModuleState endModule() {
+        ModuleState state = current;
+        current = null;
+        return state;
+    }
+
+    CheckMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Records the working directory the checks write the reports of the module to.
+     *
+     * @param directory the root project working directory
+     */
+    void useReportDirectory(File directory) {
+        this.reportDirectory = directory;
+    }
+
+    /**
+     * Gets the working directory the checks write the reports of the module to.
+     *
+     * @return the root project working directory, or null if no check has seen one
+     */
+    File reportDirectory() {
+        return reportDirectory;
+    }
+
+    /**
+     * Gets the bytecode pre-scan of the given configuration, scanning the binaries on first use.
+     *
+     * @param matcher the compiled configuration
+     * @param binaries the binaries directories and jars of the project
+     * @param libraries the library files of the project
+     * @return the pre-scan
+     */
+    synchronized BytecodePrescan prescan(DeprecatedApiMatcher matcher, List<Path> binaries, List<Path> libraries) {
+        if (prescan == null || prescanMatcher != matcher) {
+            prescan = BytecodePrescan.scan(binaries, libraries, matcher);
+            prescanMatcher = matcher;
+            LOG.info("Custom Deprecation bytecode pre-scan: {} source files scanned, {} with hits{}.",
+                prescan.scannedSources(), prescan.sourcesWithHits(), prescan.isComplete() ? "" : " (incomplete)");
+            if (prescan.configuredConstant() != null) {
+                LOG.info("Custom Deprecation bytecode pre-scan disabled: the configured field {} is a compile-time "
+                    + "constant, inlined without a reference.", prescan.configuredConstant());
+            }
+        }
+        return prescan;
+    }
+
+    /**
+     * Gets the result cache of the given configuration, loading it on first use.
+     *
+     * @param matcher the compiled configuration
+     * @param loader loads the cache, returning null if it cannot be used
+     * @return the result cache, or null if it cannot be used
+     */
+    synchronized FileResultCache resultCache(DeprecatedApiMatcher matcher, Supplier<FileResultCache> loader) {
+        if (resultCacheMatcher != matcher) {
+            resultCache = loader.get();
+            resultCacheMatcher = matcher;
+        }
+        return resultCache;
+    }
+
+    /**
+     * Writes the usages of an analyzed file to the inventory, creating it on first use.
+     *
+     * @param workingDirectory the scanner working directory
+     * @param module the key of the analyzed module
+     * @param matcher the compiled configuration
+     * @param fileKey the key of the file
+     * @param usages the configuration orders of the entries referenced in the file, once per reference
+     */
+    synchronized void recordUsages(File workingDirectory, String module, DeprecatedApiMatcher matcher, String fileKey,
+        List<Integer> usages) {
+        if (inventoryDone) {
+            return;
+        }
+        try {
+            if (inventory == null) {
+                // the configuration is the same for every file of the analysis, so the inventory is opened once
+                inventory = UsageInventory.open(workingDirectory.toPath(), module, matcher.entries());
+            }
+            for (int order : usages) {
+                inventory.record(order);
+            }
+            inventory.fileDone(fileKey);
+        } catch (IOException e) {
+            LOG.warn("Failed to write the Custom Deprecation inventory report.", e);
+            if (inventory != null) {
+                closeInventory();
+            }
+            inventoryDone = true;
+        }
+    }
+
+    /**
+     * Records a warning about the configuration of the module.
+     *
+     * @param warning identifies the warning
+     * @return true if the warning was not recorded before, so it should be logged
+     */
+    synchronized boolean firstWarning(String warning) {
+        return warnings.add(warning);
+    }
+
+    /**
+     * Counts an issue of an entry against the cap.
+     *
+     * @param api the configuration order of the entry
+     * @param maxIssuesPerApi the cap, 0 or less for no limit
+     * @return true if the issue may be raised
+     */
+    synchronized boolean withinCap(int api, int maxIssuesPerApi) {
+        if (maxIssuesPerApi <= 0) {
+            return true;
+        }
+        this.maxIssuesPerApi = maxIssuesPerApi;
+        int raised = raisedIssues.merge(api, 1, Integer::sum);
+        if (raised > maxIssuesPerApi) {
+            cappedIssues++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Logs the summary of the module and writes the result cache and the reports.
+     * The state is no longer published, so the checks of the next analysis start from a new one.
+     *
+     * @param workingDirectory the scanner working directory, or null if reports cannot be written
+     * @param module the key of the analyzed module, naming its metrics report
+     * @param metricsReport whether the JSON metrics report is written
+     */
+    synchronized void finish(File workingDirectory, String module, boolean metricsReport) {
+        if (current == this) {
+            current = null;
+        }
+        LOG.info(metrics.summary());
+        if (cappedIssues > 0) {
+            LOG.info("Custom Deprecation: {} issues over maxIssuesPerApi={} were not reported.", cappedIssues, maxIssuesPerApi);
+        }
+        if (resultCache != null) {
+            LOG.info("Custom Deprecation result cache: {} unchanged files reused.", resultCache.reusedResults());
+            resultCache.save();
+        }
+        if (inventory != null) {
+            Path report = inventory.report();
+            if (closeInventory()) {
+                LOG.info("Custom Deprecation inventory written to {}", report);
+            }
+            inventoryDone = true;
+        }
+        if (!metricsReport || workingDirectory == null) {
+            return;
+        }
+        try {
+            Path report = metrics.writeReport(workingDirectory.toPath(), module);
+            LOG.info("Custom Deprecation metrics written to {}", report);
+        } catch (IOException e) {
+            LOG.warn("Failed to write Custom Deprecation metrics report.", e);
+        }
+    }
+
+    private boolean closeInventory() {
+        UsageInventory closing = inventory;
+        inventory = null;
+        try {
+            closing.close();
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Failed to write the Custom Deprecation inventory report.", e);
+            return false;
+        }
+    }
+}
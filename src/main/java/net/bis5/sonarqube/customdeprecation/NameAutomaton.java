@@ -0,0 +1,145 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton finding whole-identifier occurrences of a set of names in raw source text.
+ * The automaton is built once per catalog; a search reads every character of the text once,
+ * following failure links on mismatches, and neither allocates nor tokenizes the text.
+ * An occurrence counts only if it is not part of a longer identifier, so {@code run} is not found
+ * in {@code rerun} or {@code running}. Comments and string literals are not skipped, which can only
+ * make a search succeed where a syntax tree walk would not.
+ */
+final class NameAutomaton {
+
+    private static final int ROOT = 0;
+
+    /** Sorted transition characters of every state. */
+    private final char[][] keys;
+    /** Target states of the transitions, parallel to {@link #keys}. */
+    private final int[][] targets;
+    private final int[] failure;
+    /** Nearest state along the failure links, itself included, where a name ends, or -1. */
+    private final int[] output;
+    /** Length of the name ending in each state, 0 if none ends there. */
+    private final int[] length;
+
+    private NameAutomaton(char[][] keys, int[][] targets, int[] failure, int[] output, int[] length) {
+        this.keys = keys;
+        this.targets = targets;
+        this.failure = failure;
+        this.output = output;
+        this.length = length;
+    }
+
+    /**
+     * Builds the automaton of the given names.
+     *
+     * @param names the names to find, empty names are ignored
+     * @return the automaton
+     */
+    static NameAutomaton of(Collection<String> names) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(0);
+        for (String name : names) {
+            int state = ROOT;
+            for (int i = 0; i < name.length(); i++) {
+                Integer next = trie.get(state).get(name.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ends.add(0);
+                    trie.get(state).put(name.charAt(i), next);
+                }
+                state = next;
+            }
+            if (state != ROOT) {
+                ends.set(state, name.length());
+            }
+        }
+        int size = trie.size();
+        char[][] keys = new char[size][];
+        int[][] targets = new int[size][];
+        int[] length = new int[size];
+        for (int state = 0; state < size; state++) {
+            Map<Character, Integer> transitions = trie.get(state);
+            keys[state] = new char[transitions.size()];
+            targets[state] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                keys[state][i] = transition.getKey();
+                targets[state][i] = transition.getValue();
+                i++;
+            }
+            length[state] = ends.get(state);
+        }
+        int[] failure = new int[size];
+        int[] output = new int[size];
+        output[ROOT] = -1;
+        // breadth-first, so the failure state of every state is complete before its children are linked
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[ROOT]) {
+            failure[child] = ROOT;
+            output[child] = length[child] > 0 ? child : -1;
+            queue.add(child);
+        }
+        NameAutomaton automaton = new NameAutomaton(keys, targets, failure, output, length);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                int child = targets[state][i];
+                int fallback = automaton.next(failure[state], keys[state][i]);
+                failure[child] = fallback;
+                output[child] = length[child] > 0 ? child : output[fallback];
+                queue.add(child);
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Checks whether any name occurs in the text as a whole identifier.
+     *
+     * @param text the source text
+     * @return true if at least one name occurs
+     */
+    boolean occursIn(CharSequence text) {
+        int state = ROOT;
+        int end = text.length();
+        for (int i = 0; i < end; i++) {
+            state = next(state, text.charAt(i));
+            for (int match = output[state]; match >= 0; match = output[failure[match]]) {
+                int start = i - length[match] + 1;
+                if ((start == 0 || !Character.isJavaIdentifierPart(text.charAt(start - 1)))
+                    && (i + 1 == end || !Character.isJavaIdentifierPart(text.charAt(i + 1)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int next(int state, char c) {
+        int current = state;
+        while (true) {
+            int index = Arrays.binarySearch(keys[current], c);
+            if (index >= 0) {
+                return targets[current][index];
+            }
+            if (current == ROOT) {
+                return ROOT;
+            }
+            current = failure[current];
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.Collection;
+
+/**
+ * Bloom filter over a set of names, built once when the catalog is compiled.
+ * A query costs {@value #PROBES} bit probes derived from the cached {@link String#hashCode()} of the
+ * name, without allocation or string comparison, and rejects most names that are not in the set;
+ * names it accepts still have to be checked against the exact set.
+ */
+final class NameFilter {
+
+    /** Filter accepting every name, used when the set is not known by literal names. */
+    static final NameFilter ALL = new NameFilter(null, 0);
+
+    private static final int PROBES = 3;
+
+    private static final int BITS_PER_NAME = 16;
+
+    private final long[] bits;
+    private final int mask;
+
+    private NameFilter(long[] bits, int mask) {
+        this.bits = bits;
+        this.mask = mask;
+    }
+
+    /**
+     * Builds a filter over the given names.
+     *
+     * @param names the names
+     * @return the filter
+     */
+    static NameFilter of(Collection<String> names) {
+        // a power of two of at least BITS_PER_NAME bits per name, for a false positive rate near 0.5%
+        int size = Integer.highestOneBit(Math.max(64, names.size() * BITS_PER_NAME) - 1) << 1;
+        NameFilter filter = new NameFilter(new long[size >>> 6], size - 1);
+        for (String name : names) {
+            int hash = name.hashCode();
+            int step = step(hash);
+            for (int i = 0; i < PROBES; i++) {
+                int bit = (hash + i * step) & filter.mask;
+                filter.bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Checks whether a name may be in the set.
+     *
+     * @param name the name
+     * @return false if the name is certainly not in the set
+     */
+    boolean mightContain(String name) {
+        if (bits == null) {
+            return true;
+        }
+        int hash = name.hashCode();
+        int step = step(hash);
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (hash + i * step) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int step(int hash) {
+        // an odd step derived from the high bits visits distinct bits for every probe
+        return Integer.rotateLeft(hash * 0x9E3779B9, 16) | 1;
+    }
+}
@@ -0,0 +1,463 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.ast.visitors.ComplexityVisitor;
+import org.sonar.java.caching.DummyCache;
+import org.sonar.java.model.JParser;
+import org.sonar.java.model.JParserConfig;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.caching.JavaReadCache;
+import org.sonar.plugins.java.api.caching.JavaWriteCache;
+import org.sonar.plugins.java.api.location.Position;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Runs {@link CustomDeprecationCheck} over source files outside of the Java analyzer's visitor pass.
+ * Files are parsed one by one with the parser of the Java frontend, resolving the types they use against the
+ * classpath and the source roots, and spread over a work-stealing pool. Every worker
+ * thread owns a check instance, so the per-file state of the check is never shared, while all of them share
+ * the compiled configuration through {@link DeprecatedApiConfigCache} and one {@link ModuleState}, so caps,
+ * caches and reports cover the whole module. The issues of a file are handed over together once the file is done.
+ */
+final class ParallelScanEngine {
+
+    private static final Logger LOG = Loggers.get(ParallelScanEngine.class);
+
+    /** Cache context of the files, disabled as nothing is kept between runs. */
+    private static final CacheContext NO_CACHE = new CacheContext() {
+        private final DummyCache cache = new DummyCache();
+
+        @Override
+        public boolean isCacheEnabled() {
+            return false;
+        }
+
+        @Override
+        public JavaReadCache getReadCache() {
+            return cache;
+        }
+
+        @Override
+        public JavaWriteCache getWriteCache() {
+            return cache;
+        }
+    };
+
+    private final Supplier<CustomDeprecationCheck> checks;
+    private final JavaVersion javaVersion;
+    private final JParserConfig parserConfig;
+    private final String[] classpath;
+    private final String[] sourcepath;
+    private final String[] sourceEncodings;
+    private final boolean includeRunningJdk;
+    private final File workingDirectory;
+    private final int parallelism;
+
+    /**
+     * Creates an engine.
+     *
+     * @param checks the factory of the check instances, called once per worker thread
+     * @param javaVersion the Java version of the sources
+     * @param classpath the compiled classes and jars the sources are resolved against
+     * @param sourcepath the source roots the sources are resolved against, e.g. to find the types of sibling files
+     * @param encoding the encoding of the sources
+     * @param workingDirectory the working directory exposed to the check, may be null
+     * @param parallelism the number of worker threads
+     */
+    ParallelScanEngine(Supplier<CustomDeprecationCheck> checks, JavaVersion javaVersion, List<File> classpath,
+        List<File> sourcepath, Charset encoding, File workingDirectory, int parallelism) {
+        this.checks = checks;
+        this.javaVersion = javaVersion;
+        this.parserConfig = JParserConfig.Mode.FILE_BY_FILE.create(javaVersion, classpath);
+        this.classpath = classpath.stream().map(File::getAbsolutePath).toArray(String[]::new);
+        this.sourcepath = sourcepath.stream().map(File::getAbsolutePath).toArray(String[]::new);
+        this.sourceEncodings = new String[this.sourcepath.length];
+        Arrays.fill(sourceEncodings, encoding.name());
+        // as the Java frontend does, the JDK running the analysis is used unless the classpath holds one
+        this.includeRunningJdk = classpath.stream().map(File::getName).noneMatch(name -> "rt.jar".equals(name)
+            || "jrt-fs.jar".equals(name));
+        this.workingDirectory = workingDirectory;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Analyzes the given files. Files that cannot be read or parsed are logged and skipped.
+     * The issues of a file are handed over as soon as the file is analyzed, unless {@code maxIssuesPerApi} is set:
+     * the issues kept under the cap are then those of the first files by key and, within a file, by position, so
+     * they are handed over once every file is analyzed, in the order of the file keys.
+     *
+     * @param files the files to analyze
+     * @param sink receives every analyzed file with its issues, called by one thread at a time
+     * @return the summary of the analysis
+     */
+    Summary scan(List<InputFile> files, BiConsumer<InputFile, List<Issue>> sink) {
+        ModuleState module = new ModuleState(CustomDeprecationCheck.NODES_TO_VISIT);
+        // every check gets the same rule parameters
+        int maxIssuesPerApi = checks.get().maxIssuesPerApi;
+        List<FileIssues> cappedFiles = maxIssuesPerApi > 0 ? new ArrayList<>() : null;
+        ThreadLocal<CustomDeprecationCheck> workerChecks = ThreadLocal.withInitial(() -> {
+            CustomDeprecationCheck check = checks.get();
+            check.shareModuleState(module);
+            return check;
+        });
+        AtomicInteger failedFiles = new AtomicInteger();
+        AtomicInteger issueCount = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>(files.size());
+        for (InputFile file : files) {
+            tasks.add(() -> {
+                FileIssues result;
+                try {
+                    result = analyze(workerChecks.get(), file);
+                } catch (Exception e) {
+                    LOG.warn("Failed to analyze " + file + "; the file is skipped.", e);
+                    failedFiles.incrementAndGet();
+                    return null;
+                }
+                if (cappedFiles != null) {
+                    synchronized (cappedFiles) {
+                        cappedFiles.add(result);
+                    }
+                    return null;
+                }
+                issueCount.addAndGet(result.issues().size());
+                synchronized (sink) {
+                    sink.accept(file, result.issues());
+                }
+                return null;
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks)) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Custom Deprecation analysis was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Custom Deprecation analysis failed.", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        if (cappedFiles != null) {
+            // the issues kept must not depend on the file a worker happens to finish first
+            cappedFiles.sort(Comparator.comparing(result -> result.file().key()));
+            for (FileIssues result : cappedFiles) {
+                List<Issue> kept = result.withinCap(module, maxIssuesPerApi);
+                issueCount.addAndGet(kept.size());
+                sink.accept(result.file(), kept);
+            }
+        }
+        CustomDeprecationSettings settings = CustomDeprecationSettings.current();
+        module.finish(workingDirectory, settings.module(), settings.isMetricsReport());
+        return new Summary(files.size(), failedFiles.get(), issueCount.get());
+    }
+
+    private FileIssues analyze(CustomDeprecationCheck check, InputFile file) throws Exception {
+        String content = file.contents();
+        ASTParser parser = parserConfig.astParser();
+        // the compiler resolves a type from the source roots when no classpath entry declares it
+        parser.setEnvironment(classpath, sourcepath, sourceEncodings, includeRunningJdk);
+        CompilationUnitTree tree = JParser.parse(parser, javaVersion.effectiveJavaVersionAsString(), file.filename(), content);
+        List<Issue> issues = new ArrayList<>();
+        List<Integer> apis = new ArrayList<>();
+        JavaFileScannerContext context = new FileContext(tree, file, content, issues);
+        check.deferCap(apis::add);
+        check.setContext(context);
+        new Dispatcher(check).scan(tree);
+        check.leaveFile(context);
+        return new FileIssues(file, issues, apis);
+    }
+
+    /**
+     * Issue raised by the check, spanning the tokens of the reported trees.
+     * Lines are 1-based and columns 0-based, as in syntax tokens; issues on a whole file or project have line 0.
+     * Secondary locations are not kept, since the issues are only printed.
+     *
+     * @param line the line of the first token
+     * @param column the column of the first token
+     * @param endLine the line of the last token
+     * @param endColumn the column after the last token
+     * @param message the issue message
+     */
+    record Issue(int line, int column, int endLine, int endColumn, String message) {
+
+        /**
+         * Creates the issue of a range of trees.
+         *
+         * @param startTree the first reported tree
+         * @param endTree the last reported tree
+         * @param message the issue message
+         * @return the issue
+         */
+        static Issue of(Tree startTree, Tree endTree, String message) {
+            Position start = startTree.firstToken().range().start();
+            Position end = endTree.lastToken().range().end();
+            return new Issue(start.line(), start.columnOffset(), end.line(), end.columnOffset(), message);
+        }
+
+        /**
+         * Creates the issue of a line, or of the whole file.
+         *
+         * @param line the line, or 0 for the whole file
+         * @param message the issue message
+         * @return the issue
+         */
+        static Issue onLine(int line, String message) {
+            return new Issue(line, 0, line, 0, message);
+        }
+    }
+
+    /**
+     * Issues raised in a file, with the entry each issue was raised for.
+     *
+     * @param file the analyzed file
+     * @param issues the issues in the order they were reported
+     * @param apis the configuration order of the entry of every issue, in the same order
+     */
+    private record FileIssues(InputFile file, List<Issue> issues, List<Integer> apis) {
+
+        /**
+         * Counts the issues of the file against the cap, by position.
+         *
+         * @param module the state counting the issues of the module
+         * @param maxIssuesPerApi the cap
+         * @return the issues under the cap, by position
+         */
+        List<Issue> withinCap(ModuleState module, int maxIssuesPerApi) {
+            List<Integer> positions = new ArrayList<>(issues.size());
+            for (int i = 0; i < issues.size(); i++) {
+                positions.add(i);
+            }
+            positions.sort(Comparator.comparing((Integer i) -> issues.get(i).line()).thenComparing(i -> issues.get(i).column()));
+            List<Issue> kept = new ArrayList<>(issues.size());
+            for (int i : positions) {
+                if (module.withinCap(apis.get(i), maxIssuesPerApi)) {
+                    kept.add(issues.get(i));
+                }
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Project the analyzed files belong to.
+     *
+     * @param key the project key, empty if none is configured
+     */
+    private record Project(String key) implements InputComponent {
+
+        @Override
+        public boolean isFile() {
+            return false;
+        }
+    }
+
+    /**
+     * Outcome of an analysis.
+     *
+     * @param files the number of files given
+     * @param failedFiles the number of files that could not be analyzed
+     * @param issues the number of issues raised
+     */
+    record Summary(int files, int failedFiles, int issues) {
+    }
+
+    /**
+     * Context of the analysis of one file, collecting the issues raised by the check.
+     * Issues raised on the project are kept with the issues of the file being analyzed, as the file-level issues.
+     */
+    private final class FileContext implements JavaFileScannerContext {
+
+        private final CompilationUnitTree tree;
+        private final InputFile file;
+        private final String content;
+        private final List<Issue> issues;
+
+        FileContext(CompilationUnitTree tree, InputFile file, String content, List<Issue> issues) {
+            this.tree = tree;
+            this.file = file;
+            this.content = content;
+            this.issues = issues;
+        }
+
+        @Override
+        public CompilationUnitTree getTree() {
+            return tree;
+        }
+
+        @Override
+        public Object getSemanticModel() {
+            // the semantic is only exposed through the symbols and types of the tree
+            return null;
+        }
+
+        @Override
+        public boolean fileParsed() {
+            return true;
+        }
+
+        @Override
+        public List<Tree> getComplexityNodes(Tree tree) {
+            return new ComplexityVisitor().getNodes(tree);
+        }
+
+        @Override
+        public void reportIssue(JavaCheck check, Tree tree, String message) {
+            issues.add(Issue.of(tree, tree, message));
+        }
+
+        @Override
+        public void reportIssue(JavaCheck check, Tree tree, String message, List<Location> flow, Integer cost) {
+            issues.add(Issue.of(tree, tree, message));
+        }
+
+        @Override
+        public void reportIssueWithFlow(JavaCheck check, Tree tree, String message, Iterable<List<Location>> flows,
+            Integer cost) {
+            issues.add(Issue.of(tree, tree, message));
+        }
+
+        @Override
+        public void reportIssue(JavaCheck check, Tree startTree, Tree endTree, String message) {
+            issues.add(Issue.of(startTree, endTree, message));
+        }
+
+        @Override
+        public void reportIssue(JavaCheck check, Tree startTree, Tree endTree, String message, List<Location> flow,
+            Integer cost) {
+            issues.add(Issue.of(startTree, endTree, message));
+        }
+
+        @Override
+        public List<String> getFileLines() {
+            return Arrays.asList(content.split("\r\n|\n|\r", -1));
+        }
+
+        @Override
+        public String getFileContent() {
+            return content;
+        }
+
+        @Override
+        public void addIssueOnFile(JavaCheck check, String message) {
+            issues.add(Issue.onLine(0, message));
+        }
+
+        @Override
+        public void addIssue(int line, JavaCheck check, String message) {
+            issues.add(Issue.onLine(line, message));
+        }
+
+        @Override
+        public void addIssue(int line, JavaCheck check, String message, Integer cost) {
+            issues.add(Issue.onLine(line, message));
+        }
+
+        @Override
+        public InputFile getInputFile() {
+            return file;
+        }
+
+        @Override
+        public void addIssueOnProject(JavaCheck check, String message) {
+            issues.add(Issue.onLine(0, message));
+        }
+
+        @Override
+        public InputComponent getProject() {
+            return new Project(getModuleKey());
+        }
+
+        @Override
+        @Deprecated
+        public File getWorkingDirectory() {
+            return workingDirectory;
+        }
+
+        @Override
+        public File getRootProjectWorkingDirectory() {
+            return workingDirectory;
+        }
+
+        @Override
+        public JavaVersion getJavaVersion() {
+            return javaVersion;
+        }
+
+        @Override
+        public boolean inAndroidContext() {
+            return false;
+        }
+
+        @Override
+        public CacheContext getCacheContext() {
+            return NO_CACHE;
+        }
+
+        @Override
+        public String getModuleKey() {
+            return CustomDeprecationSettings.current().module();
+        }
+
+        @Override
+        public String toString() {
+            return "JavaFileScannerContext[" + file + "]";
+        }
+    }
+
+    /**
+     * Walks a syntax tree and hands the subscribed nodes to a check, as the Java analyzer's visitor pass does.
+     */
+    private static final class Dispatcher extends BaseTreeVisitor {
+
+        private final IssuableSubscriptionVisitor check;
+        private final Set<Tree.Kind> kinds = EnumSet.noneOf(Tree.Kind.class);
+
+        Dispatcher(IssuableSubscriptionVisitor check) {
+            this.check = check;
+            kinds.addAll(check.nodesToVisit());
+        }
+
+        @Override
+        protected void scan(Tree tree) {
+            if (tree == null) {
+                return;
+            }
+            boolean subscribed = kinds.contains(tree.kind());
+            if (subscribed) {
+                check.visitNode(tree);
+            }
+            super.scan(tree);
+            if (subscribed) {
+                check.leaveNode(tree);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.ImportClauseTree;
+import org.sonar.plugins.java.api.tree.ImportTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.PackageDeclarationTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * File-level filter deciding whether a compilation unit can reference any configured API at all.
+ * A file whose package or imports name a configured type is always analyzed. Otherwise the file
+ * is analyzed only if it spells the name of a configured member (or, for constructors, the simple
+ * name of the configured type) somewhere, since no reference can be resolved to a configured API
+ * without it, even through method chains or inherited members. Members of fqcn patterns only
+ * contribute their names, and {@link #ALL} is used when a configured name cannot be known upfront.
+ *
+ * <p>Spelled names are searched in the raw file content with a {@link NameAutomaton} built once
+ * per catalog, which is much cheaper than walking the syntax tree. Files using Unicode escapes,
+ * which can spell an identifier without its characters, are walked instead.</p>
+ */
+final class ReferencePrefilter {
+
+    /** Filter letting every file through, used when configured names cannot be enumerated. */
+    static final ReferencePrefilter ALL =
+        new ReferencePrefilter(Collections.emptySet(), Collections.emptySet(), null, true);
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    private static final String UNICODE_ESCAPE = "\\u";
+
+    private final Set<String> qualifiedNames;
+    private final Set<String> referenceNames;
+    private final NameAutomaton referenceAutomaton;
+    private final boolean acceptAll;
+
+    private ReferencePrefilter(Set<String> qualifiedNames, Set<String> referenceNames, NameAutomaton referenceAutomaton,
+        boolean acceptAll) {
+        this.qualifiedNames = qualifiedNames;
+        this.referenceNames = referenceNames;
+        this.referenceAutomaton = referenceAutomaton;
+        this.acceptAll = acceptAll;
+    }
+
+    /**
+     * Builds the filter from the configured fqcn and member names.
+     *
+     * @param membersByType the configured member names keyed by fully qualified class name
+     * @param patternTypeMembers the member names configured for fqcn patterns, constructors excluded
+     * @return the filter
+     */
+    static ReferencePrefilter of(Map<String, ? extends Collection<String>> membersByType,
+        Collection<String> patternTypeMembers) {
+        Set<String> qualifiedNames = new HashSet<>();
+        Set<String> referenceNames = new HashSet<>(patternTypeMembers);
+        membersByType.forEach((fqcn, members) -> {
+            String dotted = fqcn.replace('$', '.');
+            for (int i = dotted.indexOf('.'); i >= 0; i = dotted.indexOf('.', i + 1)) {
+                qualifiedNames.add(dotted.substring(0, i));
+            }
+            qualifiedNames.add(dotted);
+            for (String member : members) {
+                referenceNames.add(CONSTRUCTOR.equals(member) ? simpleName(dotted) : member);
+            }
+        });
+        return new ReferencePrefilter(qualifiedNames, referenceNames, NameAutomaton.of(referenceNames), false);
+    }
+
+    /**
+     * Checks whether the given compilation unit may contain a reference to a configured API.
+     *
+     * @param tree the compilation unit of the analyzed file, may be null
+     * @return false only if no node of the file can match a configuration
+     */
+    boolean mayReference(CompilationUnitTree tree) {
+        return mayReference(tree, null);
+    }
+
+    /**
+     * Checks whether the given compilation unit may contain a reference to a configured API,
+     * searching its raw content for configured names.
+     *
+     * @param tree the compilation unit of the analyzed file, may be null
+     * @param content the content of the analyzed file, or null to walk the tree instead
+     * @return false only if no node of the file can match a configuration
+     */
+    boolean mayReference(CompilationUnitTree tree, String content) {
+        if (acceptAll || tree == null) {
+            return true;
+        }
+        PackageDeclarationTree packageDeclaration = tree.packageDeclaration();
+        if (packageDeclaration != null && qualifiedNames.contains(qualifiedName(packageDeclaration.packageName()))) {
+            return true;
+        }
+        for (ImportClauseTree importClause : tree.imports()) {
+            if (importClause instanceof ImportTree importTree && isConfiguredImport(importTree)) {
+                return true;
+            }
+        }
+        if (content != null && !content.contains(UNICODE_ESCAPE)) {
+            return referenceAutomaton.occursIn(content);
+        }
+        NameScanner scanner = new NameScanner();
+        tree.accept(scanner);
+        return scanner.found;
+    }
+
+    private boolean isConfiguredImport(ImportTree importTree) {
+        String name = qualifiedName(importTree.qualifiedIdentifier());
+        if (name == null) {
+            return false;
+        }
+        if (name.endsWith(".*")) {
+            name = name.substring(0, name.length() - 2);
+        }
+        if (qualifiedNames.contains(name)) {
+            return true;
+        }
+        // static member imports and nested type imports name the configured type as their qualifier
+        int lastDot = name.lastIndexOf('.');
+        return lastDot > 0 && qualifiedNames.contains(name.substring(0, lastDot));
+    }
+
+    /**
+     * Gets the dotted name spelled by an identifier or a chain of member selects.
+     *
+     * @param tree the name tree, e.g. a package name or an import
+     * @return the dotted name, or null if the tree is not a plain name
+     */
+    static String qualifiedName(Tree tree) {
+        if (tree instanceof IdentifierTree identifier) {
+            return identifier.name();
+        }
+        if (tree instanceof MemberSelectExpressionTree memberSelect) {
+            String qualifier = qualifiedName(memberSelect.expression());
+            return qualifier == null ? null : qualifier + "." + memberSelect.identifier().name();
+        }
+        return null;
+    }
+
+    private static String simpleName(String dottedName) {
+        return dottedName.substring(dottedName.lastIndexOf('.') + 1);
+    }
+
+    private final class NameScanner extends BaseTreeVisitor {
+        private boolean found;
+
+        @Override
+        protected void scan(Tree tree) {
+            if (!found) {
+                super.scan(tree);
+            }
+        }
+
+        @Override
+        public void visitIdentifier(IdentifierTree tree) {
+            if (referenceNames.contains(tree.name())) {
+                found = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Hashing, naming and file replacement shared by the files the plugin writes: the compiled catalogs and the
+ * result cache kept between analyses, and the reports written per module.
+ */
+final class StoreFiles {
+
+    private StoreFiles() {
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return a new digest
+     */
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formats bytes, e.g. a digest, as lowercase hexadecimal.
+     *
+     * @param bytes the bytes
+     * @return the hexadecimal string, two characters per byte
+     */
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Builds the name of a file written per module, so that the modules of one analysis never overwrite each
+     * other's file, e.g. {@code custom-deprecation-inventory-core.csv}.
+     * Characters other than letters, digits, dots, dashes and underscores are replaced by underscores, in which
+     * case a hash of the module key is appended to keep the names of different modules apart.
+     *
+     * @param prefix the start of the file name
+     * @param module the module key, empty if unknown
+     * @param suffix the end of the file name, e.g. the extension
+     * @return the file name, {@code prefix + suffix} if the module key is empty
+     */
+    static String moduleFileName(String prefix, String module, String suffix) {
+        if (module == null || module.isEmpty()) {
+            return prefix + suffix;
+        }
+        String portable = module.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (!portable.equals(module)) {
+            byte[] hash = sha256().digest(module.getBytes(StandardCharsets.UTF_8));
+            portable += '-' + hex(Arrays.copyOf(hash, 4));
+        }
+        return prefix + '-' + portable + suffix;
+    }
+
+    /**
+     * Moves a fully written temporary file into place, atomically where the file system supports it, so that
+     * concurrent analyses never read a partial file.
+     *
+     * @param temporary the written temporary file, in the directory of the target
+     * @param file the target file, replaced if it exists
+     * @throws IOException if the file cannot be moved
+     */
+    static void replace(Path temporary, Path file) throws IOException {
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deduplicates equal values while a catalog is compiled, so that the compiled catalog holds a
+ * single instance of every distinct fqcn, member name, type name, signature and message text.
+ * The pool itself is only needed during compilation and is not retained by the result.
+ * Each partition of a catalog is compiled with its own pool, and the pools are merged once every
+ * partition is compiled; a pool is not safe for concurrent updates.
+ */
+final class StringPool {
+
+    private final Map<Object, Object> values = new HashMap<>();
+
+    /**
+     * Returns the pooled instance equal to the given value, pooling the value if it is new.
+     *
+     * @param value the value, may be null
+     * @param <T> the value type
+     * @return the pooled instance, or null if the value is null
+     */
+    @SuppressWarnings("unchecked")
+    <T> T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        Object existing = values.putIfAbsent(value, value);
+        return existing == null ? value : (T) existing;
+    }
+
+    /**
+     * Returns the pooled instance equal to the given value, without pooling a new value.
+     * Only reads the pool, so threads may call it concurrently once the pool is no longer updated.
+     *
+     * @param value the value, may be null
+     * @param <T> the value type
+     * @return the pooled instance, or the value itself if no equal value is pooled
+     */
+    @SuppressWarnings("unchecked")
+    <T> T canonical(T value) {
+        if (value == null) {
+            return null;
+        }
+        Object existing = values.get(value);
+        return existing == null ? value : (T) existing;
+    }
+
+    /**
+     * Adds the values of another pool, keeping the instances of this pool for the values both hold.
+     *
+     * @param other the pool to merge into this one
+     */
+    void merge(StringPool other) {
+        other.values.forEach(values::putIfAbsent);
+    }
+}
@@ -0,0 +1,71 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.semantic.Type;
+
+/**
+ * Cache of supertype closures keyed by fully qualified class name.
+ * A check instance lives for a whole analysis, so the hierarchy of a type is walked once
+ * per analysis no matter how many call sites in how many files reach it.
+ */
+final class SupertypeCache {
+
+    private final Map<String, List<String>> closures = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the fully qualified names of every proper supertype of the given type, closest first:
+     * superclasses before the interfaces they implement.
+     *
+     * @param type the type symbol, may be null
+     * @return the supertype names, empty if the type is unknown
+     */
+    List<String> closure(Symbol type) {
+        if (type == null || type.type() == null || type.type().isUnknown()) {
+            return Collections.emptyList();
+        }
+        String fqcn = type.type().fullyQualifiedName();
+        List<String> closure = closures.get(fqcn);
+        if (closure == null) {
+            closure = compute(type.type());
+            closures.putIfAbsent(fqcn, closure);
+        }
+        return closure;
+    }
+
+    private static List<String> compute(Type type) {
+        Set<String> names = new LinkedHashSet<>();
+        Deque<Type> pending = new ArrayDeque<>();
+        addSupertypes(type, pending);
+        while (!pending.isEmpty()) {
+            Type supertype = pending.poll();
+            if (supertype.isUnknown() || !names.add(supertype.fullyQualifiedName())) {
+                continue;
+            }
+            addSupertypes(supertype, pending);
+        }
+        names.remove(type.fullyQualifiedName());
+        return Collections.unmodifiableList(new ArrayList<>(names));
+    }
+
+    private static void addSupertypes(Type type, Deque<Type> pending) {
+        Symbol.TypeSymbol symbol = type.symbol();
+        if (symbol == null) {
+            return;
+        }
+        Type superClass = symbol.superClass();
+        if (superClass != null) {
+            pending.add(superClass);
+        }
+        pending.addAll(symbol.interfaces());
+    }
+}
@@ -0,0 +1,164 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trie of fqcn patterns keyed by package segment.
+ * A lookup walks the segments of the referenced fqcn once, following the literal child by hash
+ * lookup and only testing the wildcard children of the nodes on its path, so its cost depends on
+ * the depth of the name rather than on the number of configured patterns.
+ */
+final class TypePatternTrie {
+
+    private final Node root = new Node(null);
+    private final List<DeprecatedApiMatcher.TypeEntry> entries = new ArrayList<>();
+
+    /**
+     * Gets the entry of the given fqcn pattern, creating it if needed.
+     *
+     * @param pattern the fqcn pattern
+     * @return the entry receiving the configurations of the pattern
+     */
+    DeprecatedApiMatcher.TypeEntry entryFor(String pattern) {
+        Node node = root;
+        for (String segment : pattern.split("\\.", -1)) {
+            node = node.child(segment);
+        }
+        if (node.entry == null) {
+            node.entry = new DeprecatedApiMatcher.TypeEntry();
+            entries.add(node.entry);
+        }
+        return node.entry;
+    }
+
+    /**
+     * Checks whether no pattern has been added.
+     *
+     * @return true if the trie is empty
+     */
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Gets the entries of every pattern in the trie.
+     *
+     * @return the entries, in the order their patterns were first added
+     */
+    List<DeprecatedApiMatcher.TypeEntry> entries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Merges the entries whose fqcn pattern matches the given fqcn and whose member matches the given member
+     * into the entry found so far.
+     *
+     * @param fqcn the fully qualified class name
+     * @param member the member name
+     * @param found the entry found so far, or null
+     * @return the merged entry, or null if nothing matched
+     */
+    DeprecatedApiMatcher.MemberEntry find(String fqcn, String member, DeprecatedApiMatcher.MemberEntry found) {
+        return walk(root, fqcn, 0, member, found, (result, entry, name) -> entry.find(name, result));
+    }
+
+    /**
+     * Adds the entries whose fqcn pattern matches the given fqcn, whatever their members.
+     *
+     * @param fqcn the fully qualified class name
+     * @param types the list receiving the matching entries
+     */
+    void collectTypes(String fqcn, List<DeprecatedApiMatcher.TypeEntry> types) {
+        walk(root, fqcn, 0, null, types, (result, entry, name) -> {
+            result.add(entry);
+            return result;
+        });
+    }
+
+    private static <A> A walk(Node node, String fqcn, int start, String member, A result, Visitor<A> visitor) {
+        A visited = result;
+        if (node.anySegments != null) {
+            // ** consumes zero or more segments
+            int next = start;
+            while (true) {
+                visited = walk(node.anySegments, fqcn, next, member, visited, visitor);
+                if (next > fqcn.length()) {
+                    break;
+                }
+                int dot = fqcn.indexOf('.', next);
+                next = dot < 0 ? fqcn.length() + 1 : dot + 1;
+            }
+        }
+        if (start > fqcn.length()) {
+            return node.entry == null ? visited : visitor.visit(visited, node.entry, member);
+        }
+        int end = fqcn.indexOf('.', start);
+        if (end < 0) {
+            end = fqcn.length();
+        }
+        String segment = fqcn.substring(start, end);
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            visited = walk(literal, fqcn, end + 1, member, visited, visitor);
+        }
+        for (Node wildcard : node.wildcards) {
+            if (ApiPattern.matchesGlob(wildcard.segment, segment)) {
+                visited = walk(wildcard, fqcn, end + 1, member, visited, visitor);
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Receives the entries of the patterns matching a fqcn, and combines them into a result.
+     *
+     * @param <A> the type of the result
+     */
+    @FunctionalInterface
+    private interface Visitor<A> {
+        A visit(A result, DeprecatedApiMatcher.TypeEntry entry, String member);
+    }
+
+    private static final class Node {
+        private final String segment;
+        private Map<String, Node> literals = Collections.emptyMap();
+        private List<Node> wildcards = Collections.emptyList();
+        private Node anySegments;
+        private DeprecatedApiMatcher.TypeEntry entry;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Node child(String childSegment) {
+            if (ApiPattern.ANY_SEGMENTS.equals(childSegment)) {
+                if (anySegments == null) {
+                    anySegments = new Node(childSegment);
+                }
+                return anySegments;
+            }
+            if (ApiPattern.isPattern(childSegment)) {
+                for (Node wildcard : wildcards) {
+                    if (wildcard.segment.equals(childSegment)) {
+                        return wildcard;
+                    }
+                }
+                if (wildcards.isEmpty()) {
+                    wildcards = new ArrayList<>();
+                }
+                Node wildcard = new Node(childSegment);
+                wildcards.add(wildcard);
+                return wildcard;
+            }
+            if (literals.isEmpty()) {
+                literals = new HashMap<>();
+            }
+            return literals.computeIfAbsent(childSegment, Node::new);
+        }
+    }
+}
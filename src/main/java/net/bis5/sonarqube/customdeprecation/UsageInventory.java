@@ -0,0 +1,186 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Migration inventory of an analysis: the usages of every catalog entry per file and per module,
+ * written as CSV to {@code custom-deprecation-inventory-<module>.csv} in the scanner working directory, one file
+ * per module so that the modules of a multi-module analysis each keep their report.
+ * The rows of a file are appended as soon as the file is left, so besides the writer only three counters
+ * per catalog entry are kept: the usages in the current file, and the usages and files of the module.
+ * The module rows, one per catalog entry including the entries no longer used, are appended at the end.
+ *
+ * <p>Columns: {@code scope,module,file,fqcn,member,arguments,usages,files}, where {@code scope} is
+ * {@code file} for the usages of an entry in a file, with an empty {@code files} column, and {@code module}
+ * for the totals of an entry, with an empty {@code file} column. {@code arguments} is empty for entries
+ * targeting every overload.</p>
+ */
+final class UsageInventory implements AutoCloseable {
+
+    /** Start of the name of the reports written under the scanner working directory. */
+    static final String FILE_PREFIX = "custom-deprecation-inventory";
+
+    static final String HEADER = "scope,module,file,fqcn,member,arguments,usages,files";
+
+    private final Path report;
+    private final String module;
+    /** Entries by configuration order; orders of entries left out of the configuration are null. */
+    private final DeprecatedApi[] apis;
+    private final int[] fileUsages;
+    private final int[] usages;
+    private final int[] files;
+    /** Orders of the entries used in the current file, the first {@link #touchedCount} are valid. */
+    private final int[] touched;
+    private int touchedCount;
+    private final Writer writer;
+
+    private UsageInventory(Path report, String module, DeprecatedApi[] apis, Writer writer) {
+        this.report = report;
+        this.module = module;
+        this.apis = apis;
+        this.fileUsages = new int[apis.length];
+        this.usages = new int[apis.length];
+        this.files = new int[apis.length];
+        this.touched = new int[apis.length];
+        this.writer = writer;
+    }
+
+    /**
+     * Creates the report and writes its header.
+     *
+     * @param directory the scanner working directory
+     * @param module the key of the analyzed module
+     * @param entries the entries of the configuration
+     * @return the inventory, to be closed at the end of the analysis
+     * @throws IOException if the report cannot be created
+     */
+    static UsageInventory open(Path directory, String module, List<DeprecatedApi> entries) throws IOException {
+        int size = 0;
+        for (DeprecatedApi api : entries) {
+            size = Math.max(size, api.order() + 1);
+        }
+        DeprecatedApi[] apis = new DeprecatedApi[size];
+        for (DeprecatedApi api : entries) {
+            apis[api.order()] = api;
+        }
+        Files.createDirectories(directory);
+        Path report = directory.resolve(fileName(module));
+        Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8);
+        writer.write(HEADER);
+        writer.write('\n');
+        return new UsageInventory(report, module, apis, writer);
+    }
+
+    /**
+     * Gets the name of the report of a module.
+     *
+     * @param module the key of the module
+     * @return the file name
+     */
+    static String fileName(String module) {
+        return StoreFiles.moduleFileName(FILE_PREFIX, module, ".csv");
+    }
+
+    /**
+     * Gets the report file.
+     *
+     * @return the path of the report
+     */
+    Path report() {
+        return report;
+    }
+
+    /**
+     * Counts a usage of an entry in the current file.
+     *
+     * @param order the configuration order of the used entry
+     */
+    void record(int order) {
+        if (order < 0 || order >= apis.length || apis[order] == null) {
+            return;
+        }
+        if (fileUsages[order]++ == 0) {
+            touched[touchedCount++] = order;
+        }
+    }
+
+    /**
+     * Writes the usages of the current file and resets them for the next file.
+     *
+     * @param file the key of the file
+     * @throws IOException if the report cannot be written
+     */
+    void fileDone(String file) throws IOException {
+        if (touchedCount == 0) {
+            return;
+        }
+        Arrays.sort(touched, 0, touchedCount);
+        for (int i = 0; i < touchedCount; i++) {
+            int order = touched[i];
+            usages[order] += fileUsages[order];
+            files[order]++;
+            writeRow("file", file, apis[order], fileUsages[order], null);
+            fileUsages[order] = 0;
+        }
+        touchedCount = 0;
+    }
+
+    /**
+     * Writes the totals of every entry and closes the report.
+     *
+     * @throws IOException if the report cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int order = 0; order < apis.length; order++) {
+                if (apis[order] != null) {
+                    writeRow("module", null, apis[order], usages[order], files[order]);
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeRow(String scope, String file, DeprecatedApi api, int usageCount, Integer fileCount) throws IOException {
+        writer.write(scope);
+        writer.write(',');
+        writeField(module);
+        writer.write(',');
+        writeField(file);
+        writer.write(',');
+        writeField(api.fqcn());
+        writer.write(',');
+        writeField(api.member());
+        writer.write(',');
+        writeField(api.signature() == null ? null : api.signature().toString());
+        writer.write(',');
+        writer.write(Integer.toString(usageCount));
+        writer.write(',');
+        if (fileCount != null) {
+            writer.write(Integer.toString(fileCount));
+        }
+        writer.write('\n');
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
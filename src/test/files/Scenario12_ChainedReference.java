@@ -0,0 +1,11 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package com.example.chained;
+
+import java.util.ArrayList;
+
+class Scenario12_ChainedReference {
+    void test() {
+        // java.util.List is neither imported nor in this package, but is reached through subList()
+        new ArrayList<String>().subList(0, 0).clear(); // Noncompliant {{This API is deprecated for this project. Use removeAll}}
+    }
+}
@@ -0,0 +1,23 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package com.example;
+
+import static com.example.Constants.NEW_VALUE;
+import static com.example.Constants.OLD_VALUE;
+
+class Scenario13_StaticFieldImport {
+    void test() {
+        int value = OLD_VALUE; // Noncompliant {{This API is deprecated for this project. Use Constants.NEW_VALUE}}
+        int newValue = NEW_VALUE;
+    }
+}
+
+class ConstantsUser extends Constants {
+    int read() {
+        return OLD_VALUE; // Noncompliant {{This API is deprecated for this project. Use Constants.NEW_VALUE}}
+    }
+}
+
+class Constants {
+    static final int OLD_VALUE = 1;
+    static final int NEW_VALUE = 2;
+}
@@ -0,0 +1,24 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package com.example.legacy.io;
+
+class Scenario14_WildcardPatterns {
+    void test() {
+        LegacyReader reader = new LegacyReader();
+        reader.getName(); // Noncompliant {{This API is deprecated for this project. Use the NIO readers}}
+        reader.getSize(); // Noncompliant {{This API is deprecated for this project. Use Files.size()}}
+        reader.close();
+    }
+}
+
+class LegacyReader {
+    String getName() {
+        return "";
+    }
+
+    long getSize() {
+        return 0L;
+    }
+
+    void close() {
+    }
+}
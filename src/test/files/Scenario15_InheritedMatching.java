@@ -0,0 +1,35 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package com.example.inherited;
+
+class Scenario15_InheritedMatching {
+    void test() {
+        ModernChild child = new ModernChild();
+        child.oldMethod("value"); // Noncompliant {{This API is deprecated for this project. Use newMethod(String)}}
+        child.oldMethod(1);
+        new FileResource().release(); // Noncompliant {{This API is deprecated for this project. Use close()}}
+    }
+}
+
+class LegacyBase {
+    void oldMethod(String value) {
+    }
+}
+
+class ModernChild extends LegacyBase {
+    @Override
+    void oldMethod(String value) {
+    }
+
+    void oldMethod(int value) {
+    }
+}
+
+interface LegacyCloseable {
+    void release();
+}
+
+class FileResource implements LegacyCloseable {
+    @Override
+    public void release() {
+    }
+}
@@ -0,0 +1,18 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package com.example.templates;
+
+class Scenario16_MessageTemplate {
+    void test() {
+        FrozenApi api = new FrozenApi();
+        api.run("task"); // Noncompliant {{FrozenApi.run(java.lang.String) is frozen in com.example.templates.Scenario16_MessageTemplate. Use Executor}}
+        api.run(1); // Noncompliant {{FrozenApi.run(int) is frozen in com.example.templates.Scenario16_MessageTemplate. Use Executor}}
+    }
+}
+
+class FrozenApi {
+    void run(String task) {
+    }
+
+    void run(int count) {
+    }
+}
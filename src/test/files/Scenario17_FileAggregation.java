@@ -0,0 +1,23 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package com.example;
+
+class Scenario17_FileAggregation {
+    void test(Ledger ledger) {
+        ledger.post(); // Noncompliant [[secondary=7,10]] {{This API is deprecated for this project. Use Ledger.record()}}
+        ledger.post();
+        ledger.close(); // Noncompliant {{This API is deprecated for this project. Use Ledger.shutdown()}}
+        ledger.record();
+        ledger.post();
+    }
+}
+
+class Ledger {
+    void post() {
+    }
+
+    void record() {
+    }
+
+    void close() {
+    }
+}
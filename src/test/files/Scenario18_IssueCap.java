@@ -0,0 +1,23 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package com.example;
+
+class Scenario18_IssueCap {
+    void test(CappedLedger ledger) {
+        ledger.post(); // Noncompliant {{This API is deprecated for this project. Use CappedLedger.record()}}
+        ledger.post(); // Noncompliant {{This API is deprecated for this project. Use CappedLedger.record()}}
+        ledger.post();
+        ledger.close(); // Noncompliant {{This API is deprecated for this project. Use CappedLedger.shutdown()}}
+        ledger.post();
+    }
+}
+
+class CappedLedger {
+    void post() {
+    }
+
+    void record() {
+    }
+
+    void close() {
+    }
+}
@@ -0,0 +1,25 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package com.example;
+
+class Scenario19_ExplicitConstructorInvocation extends LegacyBase {
+    Scenario19_ExplicitConstructorInvocation() {
+        super("x"); // Noncompliant {{This API is deprecated for this project. Extend ModernBase instead}}
+    }
+
+    Scenario19_ExplicitConstructorInvocation(int value) {
+        this();
+    }
+
+    LegacyBase create() {
+        return new LegacyBase(); // Noncompliant {{This API is deprecated for this project. Extend ModernBase instead}}
+    }
+}
+
+class LegacyBase {
+    LegacyBase(String name) {
+    }
+
+    LegacyBase() {
+        this("default"); // Noncompliant {{This API is deprecated for this project. Extend ModernBase instead}}
+    }
+}
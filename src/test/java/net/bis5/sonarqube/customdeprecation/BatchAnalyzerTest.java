@@ -0,0 +1,135 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchAnalyzerTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    void test_deprecated_call_is_printed(@TempDir Path dir) throws IOException {
+        Path apis = dir.resolve("apis.json");
+        Files.writeString(apis, "[{\"fqcn\":\"com.example.Legacy\",\"member\":\"old\",\"migration\":\"Use Modern.call()\"}]");
+        Path sources = dir.resolve("src");
+        Files.createDirectories(sources);
+        Files.writeString(sources.resolve("Client.java"), String.join("\n",
+            "package com.example;",
+            "",
+            "class Legacy {",
+            "    static void old() {}",
+            "}",
+            "",
+            "class Client {",
+            "    void run() {",
+            "        Legacy.old();",
+            "    }",
+            "}",
+            ""));
+        Files.writeString(sources.resolve("Clean.java"), "package com.example;\n\nclass Clean {}\n");
+
+        int status = run("--apis", apis.toString(), "--threads", "2", sources.toString());
+
+        assertEquals(BatchAnalyzer.EXIT_ISSUES, status);
+        String output = out.toString(StandardCharsets.UTF_8);
+        assertEquals(1, output.lines().count());
+        assertTrue(output.startsWith(sources.resolve("Client.java").toAbsolutePath() + ":9:9: "), output);
+        assertTrue(output.contains("Use Modern.call()"), output);
+    }
+
+    @Test
+    void test_types_of_sibling_files_are_resolved_from_the_source_roots(@TempDir Path dir) throws IOException {
+        Path apis = dir.resolve("apis.json");
+        Files.writeString(apis, "[{\"fqcn\":\"com.example.Legacy\",\"member\":\"old\"}]");
+        Path sources = dir.resolve("src");
+        Path packageDir = sources.resolve("com/example");
+        Files.createDirectories(packageDir);
+        Files.writeString(packageDir.resolve("Legacy.java"), "package com.example;\n\npublic class Legacy {\n    public static void old() {}\n}\n");
+        Path client = packageDir.resolve("Client.java");
+        Files.writeString(client, "package com.example;\n\nclass Client {\n    void run() {\n        Legacy.old();\n    }\n}\n");
+
+        assertEquals(BatchAnalyzer.EXIT_ISSUES, run("--apis", apis.toString(), sources.toString()));
+        assertEquals(BatchAnalyzer.EXIT_ISSUES, run("--apis", apis.toString(), "--sourcepath", sources.toString(), client.toString()));
+
+        String output = out.toString(StandardCharsets.UTF_8);
+        assertEquals(2, output.lines().count(), output);
+        assertTrue(output.lines().allMatch(line -> line.startsWith(client.toAbsolutePath() + ":5:9: ")), output);
+    }
+
+    @Test
+    void test_capped_issues_do_not_depend_on_the_threads(@TempDir Path dir) throws IOException {
+        Path apis = dir.resolve("apis.json");
+        Files.writeString(apis, "[{\"fqcn\":\"com.example.Legacy\",\"member\":\"old\"}]");
+        Path sources = dir.resolve("src");
+        Path packageDir = sources.resolve("com/example");
+        Files.createDirectories(packageDir);
+        Files.writeString(packageDir.resolve("Legacy.java"), "package com.example;\n\npublic class Legacy {\n    public static void old() {}\n}\n");
+        for (String name : new String[] {"A", "B", "C", "D"}) {
+            Files.writeString(packageDir.resolve(name + ".java"),
+                "package com.example;\n\nclass " + name + " {\n    void run() {\n        Legacy.old();\n        Legacy.old();\n    }\n}\n");
+        }
+
+        for (String threads : new String[] {"1", "4", "4"}) {
+            out.reset();
+            assertEquals(BatchAnalyzer.EXIT_ISSUES,
+                run("--apis", apis.toString(), "--max-issues-per-api", "3", "--threads", threads, sources.toString()));
+
+            List<String> locations = out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> line.substring(packageDir.toAbsolutePath().toString().length() + 1, line.lastIndexOf(':')))
+                .toList();
+            assertEquals(List.of("A.java:5:9", "A.java:6:9", "B.java:5:9"), locations);
+        }
+    }
+
+    @Test
+    void test_clean_sources_exit_with_zero(@TempDir Path dir) throws IOException {
+        Path source = dir.resolve("Clean.java");
+        Files.writeString(source, "class Clean {}\n");
+        Path report = dir.resolve("out/issues.txt");
+
+        int status = run("--output", report.toString(), source.toString());
+
+        assertEquals(BatchAnalyzer.EXIT_CLEAN, status);
+        assertEquals("", Files.readString(report));
+    }
+
+    @Test
+    void test_invalid_arguments_are_usage_errors(@TempDir Path dir) {
+        assertEquals(BatchAnalyzer.EXIT_ERROR, run());
+        assertEquals(BatchAnalyzer.EXIT_ERROR, run("--unknown", "src"));
+        assertEquals(BatchAnalyzer.EXIT_ERROR, run("--threads", "0", "src"));
+        assertEquals(BatchAnalyzer.EXIT_ERROR, run("--threads"));
+        assertEquals(BatchAnalyzer.EXIT_ERROR, run(dir.resolve("missing").toString()));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Usage: BatchAnalyzer"));
+        assertEquals("", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void test_scanner_properties_are_parsed() throws IOException {
+        BatchAnalyzer.Options options = BatchAnalyzer.Options.parse(new String[] {
+            "-D" + CustomDeprecationSettings.CATALOG_KEY + "=catalog.json", "--match-inherited", "--java-version", "11", "src"});
+
+        assertEquals("catalog.json", options.properties().get(CustomDeprecationSettings.CATALOG_KEY));
+        assertTrue(options.matchInherited());
+        assertEquals(11, options.javaVersion());
+        assertEquals("[]", options.deprecatedApis());
+    }
+
+    private int run(String... args) {
+        return BatchAnalyzer.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+            new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+}
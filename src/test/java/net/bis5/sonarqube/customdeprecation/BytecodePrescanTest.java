@@ -0,0 +1,210 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BytecodePrescanTest {
+
+    private static final DeprecatedApiMatcher MATCHER = new DeprecatedApiMatcher.Builder()
+        .add("com.example.Api", "oldMethod", null, "Use newMethod()", null)
+        .add("com.example.Api", "<init>", "(java.lang.String)", "Use Api.of(String)", null)
+        .build();
+
+    @Test
+    void test_class_files_with_references_are_hits(@TempDir Path dir) throws IOException {
+        Path classes = compileFixtures(dir);
+
+        BytecodePrescan prescan = BytecodePrescan.scan(List.of(classes), List.of(), MATCHER);
+
+        assertTrue(prescan.isComplete());
+        // called through a subclass: the compiler records Child as the owner
+        assertTrue(prescan.mayReference("com/example/client/ViaChild.java", 0));
+        assertTrue(prescan.mayReference("com/example/client/ViaConstructor.java", 0));
+        assertFalse(prescan.mayReference("com/example/client/Clean.java", 0));
+        // the constant is inlined and leaves no reference
+        assertFalse(prescan.mayReference("com/example/client/ConstantOnly.java", 0));
+        // Child's implicit super() call references a configured constructor, whatever its signature
+        assertTrue(prescan.mayReference("com/example/Child.java", 0));
+        assertFalse(prescan.mayReference("com/example/Api.java", 0));
+        assertEquals(3, prescan.sourcesWithHits());
+    }
+
+    @Test
+    void test_stale_and_unknown_sources_are_analyzed(@TempDir Path dir) throws IOException {
+        BytecodePrescan prescan = BytecodePrescan.scan(List.of(compileFixtures(dir)), List.of(), MATCHER);
+
+        assertTrue(prescan.mayReference("com/example/client/Clean.java", Long.MAX_VALUE));
+        assertTrue(prescan.mayReference("com/example/client/NotCompiled.java", 0));
+    }
+
+    @Test
+    void test_jars_are_scanned(@TempDir Path dir) throws IOException {
+        Path jar = jar(compileFixtures(dir), dir.resolve("fixtures.jar"));
+
+        BytecodePrescan prescan = BytecodePrescan.scan(List.of(jar), List.of(), MATCHER);
+
+        assertTrue(prescan.mayReference("com/example/client/ViaChild.java", 0));
+        assertFalse(prescan.mayReference("com/example/client/Clean.java", 0));
+    }
+
+    @Test
+    void test_configured_constants_disable_skipping(@TempDir Path dir) throws IOException {
+        Path classes = compileFixtures(dir);
+        DeprecatedApiMatcher matcher = new DeprecatedApiMatcher.Builder()
+            .add("com.example.Api", "oldMethod", null, "Use newMethod()", null)
+            .add("com.example.Api", "CONST", null, "Use NEW_CONST", null)
+            .build();
+
+        BytecodePrescan prescan = BytecodePrescan.scan(List.of(classes), List.of(), matcher);
+
+        assertEquals("com.example.Api#CONST", prescan.configuredConstant());
+        assertTrue(prescan.mayReference("com/example/client/ConstantOnly.java", 0));
+        assertTrue(prescan.mayReference("com/example/client/Clean.java", 0));
+        assertNull(BytecodePrescan.scan(List.of(classes), List.of(), MATCHER).configuredConstant());
+    }
+
+    @Test
+    void test_constants_are_read_from_the_libraries(@TempDir Path dir) throws IOException {
+        Path classes = compileFixtures(dir);
+        Path library = jar(classes, dir.resolve("library.jar"));
+        Files.delete(classes.resolve("com/example/Api.class"));
+        DeprecatedApiMatcher matcher = new DeprecatedApiMatcher.Builder()
+            .add("com.example.Api", "CONST", null, "Use NEW_CONST", null)
+            .build();
+
+        BytecodePrescan prescan = BytecodePrescan.scan(List.of(classes), List.of(library), matcher);
+
+        assertEquals("com.example.Api#CONST", prescan.configuredConstant());
+        assertTrue(prescan.mayReference("com/example/client/Clean.java", 0));
+    }
+
+    @Test
+    void test_unreadable_class_disables_skipping(@TempDir Path dir) throws IOException {
+        Path classes = compileFixtures(dir);
+        Files.write(classes.resolve("Broken.class"), new byte[] {(byte) 0xCA, (byte) 0xFE});
+
+        BytecodePrescan prescan = BytecodePrescan.scan(List.of(classes), List.of(), MATCHER);
+
+        assertFalse(prescan.isComplete());
+        assertTrue(prescan.mayReference("com/example/client/Clean.java", 0));
+    }
+
+    @Test
+    void test_corrupt_class_disables_skipping(@TempDir Path dir) throws IOException {
+        Path classes = compileFixtures(dir);
+        // this_class points to a class constant whose name index is past the constant pool
+        Files.write(classes.resolve("OutOfPool.class"), classFile(0x07, 0x01, 0xF4));
+        // this_class points to a class constant whose name index is 0, so the class has no name
+        Path unnamed = Files.createDirectories(dir.resolve("unnamed")).resolve("Unnamed.class");
+        Files.write(unnamed, classFile(0x07, 0x00, 0x00));
+
+        assertThrows(ArrayIndexOutOfBoundsException.class,
+            () -> ClassFileReader.read(Files.readAllBytes(classes.resolve("OutOfPool.class"))));
+        BytecodePrescan prescan = BytecodePrescan.scan(List.of(classes), List.of(), MATCHER);
+        assertFalse(prescan.isComplete());
+        assertTrue(prescan.mayReference("com/example/client/Clean.java", 0));
+        assertFalse(BytecodePrescan.scan(List.of(unnamed.getParent()), List.of(), MATCHER).isComplete());
+    }
+
+    @Test
+    void test_classes_are_attributed_to_their_source_file(@TempDir Path dir) throws IOException {
+        Path classes = compileFixtures(dir);
+
+        ClassFileReader.ClassFile helper = ClassFileReader.read(
+            Files.readAllBytes(classes.resolve("com/example/client/CleanHelper.class")));
+
+        assertEquals("com.example.client.CleanHelper", helper.name());
+        assertEquals("Clean.java", helper.sourceFile());
+        assertEquals("com/example/client/Clean.java", BytecodePrescan.sourceKey("com.example.client", "Clean.java"));
+        assertEquals("Clean.java", BytecodePrescan.sourceKey(null, "Clean.java"));
+    }
+
+    private static Path compileFixtures(Path dir) throws IOException {
+        Path sources = dir.resolve("src");
+        List<Path> files = new ArrayList<>();
+        files.add(write(sources, "com/example/Api.java", "package com.example;\n"
+            + "public class Api {\n"
+            + "    public static final int CONST = 1;\n"
+            + "    public Api() {}\n"
+            + "    public Api(String name) {}\n"
+            + "    public void oldMethod() {}\n"
+            + "}\n"));
+        files.add(write(sources, "com/example/Child.java", "package com.example;\n"
+            + "public class Child extends Api {}\n"));
+        files.add(write(sources, "com/example/client/ViaChild.java", "package com.example.client;\n"
+            + "class ViaChild {\n"
+            + "    void run() { new com.example.Child().oldMethod(); }\n"
+            + "}\n"));
+        files.add(write(sources, "com/example/client/ViaConstructor.java", "package com.example.client;\n"
+            + "class ViaConstructor {\n"
+            + "    Object run() { return new com.example.Api(\"name\"); }\n"
+            + "}\n"));
+        files.add(write(sources, "com/example/client/Clean.java", "package com.example.client;\n"
+            + "class Clean {\n"
+            + "    int run() { return new CleanHelper().hashCode(); }\n"
+            + "}\n"
+            + "class CleanHelper {}\n"));
+        files.add(write(sources, "com/example/client/ConstantOnly.java", "package com.example.client;\n"
+            + "class ConstantOnly {\n"
+            + "    int run() { return com.example.Api.CONST; }\n"
+            + "}\n"));
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(List.of("-d", classes.toString()));
+        files.forEach(file -> arguments.add(file.toString()));
+        int result = compiler.run(null, OutputStream.nullOutputStream(), System.err, arguments.toArray(new String[0]));
+        assertEquals(0, result);
+        return classes;
+    }
+
+    private static Path jar(Path classes, Path jar) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar)); Stream<Path> files = Files.walk(classes)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new ZipEntry(classes.relativize(file).toString().replace('\\', '/')));
+                out.write(Files.readAllBytes(file));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    // a class file whose only constant is its own class, without members
+    private static byte[] classFile(int... constant) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, 0x34, 0, 2});
+        for (int b : constant) {
+            out.write(b);
+        }
+        // access flags, this class, super class, and no interfaces, fields, methods or attributes
+        out.writeBytes(new byte[] {0, 0x21, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+        return out.toByteArray();
+    }
+
+    private static Path write(Path root, String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
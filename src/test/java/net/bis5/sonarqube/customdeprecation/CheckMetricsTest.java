@@ -0,0 +1,46 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckMetricsTest {
+
+    @Test
+    void test_summary_reports_counters(@TempDir Path workDir) throws IOException {
+        CheckMetrics metrics = new CheckMetrics(Arrays.asList(Tree.Kind.METHOD_INVOCATION, Tree.Kind.IDENTIFIER));
+        metrics.fileStarted(false, 0L);
+        metrics.fileStarted(true, 0L);
+        metrics.nodeVisited(Tree.Kind.METHOD_INVOCATION);
+        metrics.nodeVisited(Tree.Kind.IDENTIFIER);
+        metrics.nodeVisited(Tree.Kind.IDENTIFIER);
+        metrics.lookup(false);
+        metrics.lookup(true);
+        metrics.issueRaised();
+
+        String summary = metrics.summary();
+        assertTrue(summary.contains("2 files (1 skipped)"));
+        assertTrue(summary.contains("3 nodes {"));
+        assertTrue(summary.contains("METHOD_INVOCATION=1"));
+        assertTrue(summary.contains("IDENTIFIER=2"));
+        assertTrue(summary.contains("2 lookups, 1 signature comparisons, 1 issues"));
+
+        Path report = metrics.writeReport(workDir, "com.example:app");
+        JsonObject json = JsonParser.parseString(Files.readString(report, StandardCharsets.UTF_8)).getAsJsonObject();
+        assertTrue(report.getFileName().toString().matches("custom-deprecation-metrics-com\\.example_app-[0-9a-f]{8}\\.json"));
+        assertEquals(2L, json.get("files").getAsLong());
+        assertEquals(2L, json.getAsJsonObject("nodes").get("IDENTIFIER").getAsLong());
+        assertEquals(1L, json.get("issues").getAsLong());
+    }
+}
@@ -0,0 +1,151 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledCatalogStoreTest {
+
+    private static final DeprecatedApiMatcher MATCHER = new DeprecatedApiMatcher.Builder()
+        .add("com.example.Api", "run", null, "Use start()", null)
+        .add("com.example.Api", "run", "(java.lang.String,int)", "Use start(String)", "since 2.0")
+        .add("com.example.Api", "stop", "()", "Use halt()", null, "{member} is called from {enclosingClass}")
+        .add("com.example.legacy.**", "get*", null, "Use records", null, "{fqcn}: {signature}")
+        .add("com.example.Api", "run", "(int)", "Use start()", null)
+        .build();
+
+    @Test
+    void test_restored_matcher_matches_like_compiled_one(@TempDir Path dir) {
+        CompiledCatalogStore store = new CompiledCatalogStore(dir.resolve("store"));
+
+        store.store("key", MATCHER);
+        DeprecatedApiMatcher restored = store.load("key");
+
+        assertNotNull(restored);
+        assertEquals(MATCHER.entries().size(), restored.entries().size());
+        assertMatchesLike(restored, "com.example.Api", "run", ArgumentSignature.of("java.lang.String", "int"));
+        assertMatchesLike(restored, "com.example.Api", "run", ArgumentSignature.of("int"));
+        assertMatchesLike(restored, "com.example.Api", "stop", ArgumentSignature.NO_ARGUMENTS);
+        assertMatchesLike(restored, "com.example.legacy.model.Order", "getId", ArgumentSignature.NO_ARGUMENTS);
+        assertNull(restored.match("com.example.Api", "halt", ArgumentSignature.NO_ARGUMENTS));
+        assertEquals("stop is called from com.example.Client", restored.match("com.example.Api", "stop",
+            ArgumentSignature.NO_ARGUMENTS).message().format(placeholder -> "com.example.Client"));
+        assertTrue(restored.isConfiguredMember("getName"));
+    }
+
+    @Test
+    void test_restored_text_is_shared(@TempDir Path dir) {
+        CompiledCatalogStore store = new CompiledCatalogStore(dir);
+        store.store("key", MATCHER);
+
+        DeprecatedApiMatcher restored = store.load("key");
+
+        assertSame(restored.entries().get(0).fqcn(), restored.entries().get(1).fqcn());
+        assertSame(restored.entries().get(0).message(), restored.entries().get(4).message());
+    }
+
+    @Test
+    void test_missing_or_unreadable_file_is_a_miss(@TempDir Path dir) throws IOException {
+        CompiledCatalogStore store = new CompiledCatalogStore(dir);
+
+        assertNull(store.load("missing"));
+        Files.write(store.fileFor("broken"), new byte[] {0x43, 0x44, 0x43, 0x50, 0, 0});
+        assertNull(store.load("broken"));
+        Files.write(store.fileFor("truncated"), Arrays.copyOf(CompiledCatalogStore.write(MATCHER.entries()), 40));
+        assertNull(store.load("truncated"));
+    }
+
+    @Test
+    void test_corrupt_lengths_are_a_miss(@TempDir Path dir) throws IOException {
+        CompiledCatalogStore store = new CompiledCatalogStore(dir);
+        byte[] valid = CompiledCatalogStore.write(MATCHER.entries());
+        // the string count follows the magic number and the format version
+        byte[] hugeCount = valid.clone();
+        ByteBuffer.wrap(hugeCount).putInt(8, Integer.MAX_VALUE);
+        byte[] negativeLength = valid.clone();
+        ByteBuffer.wrap(negativeLength).putInt(12, -5);
+
+        assertThrows(IOException.class, () -> CompiledCatalogStore.read(ByteBuffer.wrap(hugeCount)));
+        assertThrows(IOException.class, () -> CompiledCatalogStore.read(ByteBuffer.wrap(negativeLength)));
+        Files.write(store.fileFor("huge"), hugeCount);
+        assertNull(store.load("huge"));
+        Files.write(store.fileFor("negative"), negativeLength);
+        assertNull(store.load("negative"));
+    }
+
+    @Test
+    void test_key_depends_on_rule_parameter_and_catalog_content(@TempDir Path baseDir) throws IOException {
+        Path file = baseDir.resolve("catalog.json");
+        Files.write(file, "[]".getBytes(StandardCharsets.UTF_8));
+        CatalogLocation catalog = CatalogLocation.resolve("catalog.json", baseDir);
+
+        String key = CompiledCatalogStore.key("[]", catalog);
+
+        assertEquals(64, key.length());
+        assertEquals(key, CompiledCatalogStore.key("[]", catalog));
+        assertNotEquals(key, CompiledCatalogStore.key("[ ]", catalog));
+        assertNotEquals(key, CompiledCatalogStore.key("[]", null));
+        assertNotEquals(CompiledCatalogStore.key(null, null), CompiledCatalogStore.key("", null));
+        Files.write(file, "[ ]".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(key, CompiledCatalogStore.key("[]", catalog));
+    }
+
+    @Test
+    void test_key_depends_on_plugin_version() {
+        // filtered from the project version by the build
+        assertTrue(CompiledCatalogStore.PLUGIN_VERSION.matches("\\d+\\.\\d+.*"), CompiledCatalogStore.PLUGIN_VERSION);
+    }
+
+    @Test
+    void test_placeholders_are_stored_by_stable_code() {
+        // persisted in compiled catalogs: changing a code requires a new format version
+        assertEquals('S', IssueMessage.Placeholder.SIGNATURE.code());
+        assertEquals('E', IssueMessage.Placeholder.ENCLOSING_CLASS.code());
+        for (IssueMessage.Placeholder placeholder : IssueMessage.Placeholder.values()) {
+            assertSame(placeholder, IssueMessage.Placeholder.ofCode(placeholder.code()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> IssueMessage.Placeholder.ofCode('?'));
+    }
+
+    @Test
+    void test_config_cache_stores_and_restores_compiled_catalog(@TempDir Path dir) throws IOException {
+        String config = "[{\"fqcn\":\"com.example.StoredApi\",\"member\":\"oldMethod\",\"migration\":\"Use newMethod()\"}]";
+        Path storeDirectory = dir.resolve("store");
+
+        DeprecatedApiConfigCache.get(config, null, storeDirectory);
+
+        Path stored = new CompiledCatalogStore(storeDirectory).fileFor(CompiledCatalogStore.key(config, null));
+        assertTrue(Files.isRegularFile(stored));
+        DeprecatedApiConfigCache.get("[]");
+        DeprecatedApiMatcher restored = DeprecatedApiConfigCache.get(config, null, storeDirectory);
+        assertEquals("Use newMethod()", restored.match("com.example.StoredApi", "oldMethod", null).migration());
+    }
+
+    private static void assertMatchesLike(DeprecatedApiMatcher restored, String fqcn, String member,
+        ArgumentSignature signature) {
+        DeprecatedApi expected = MATCHER.match(fqcn, member, signature);
+        DeprecatedApi actual = restored.match(fqcn, member, signature);
+        assertNotNull(actual);
+        assertEquals(expected.order(), actual.order());
+        assertEquals(expected.fqcn(), actual.fqcn());
+        assertEquals(expected.member(), actual.member());
+        assertEquals(expected.signature(), actual.signature());
+        assertEquals(expected.migration(), actual.migration());
+        assertEquals(expected.note(), actual.note());
+        assertEquals(expected.message(), actual.message());
+    }
+}
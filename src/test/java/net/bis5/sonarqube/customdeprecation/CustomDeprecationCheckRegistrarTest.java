@@ -0,0 +1,107 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.java.api.CheckRegistrar;
+import org.sonar.plugins.java.api.JavaCheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CustomDeprecationCheckRegistrarTest {
+
+    private static final Map<String, String> PARAMS = Map.of(
+        "deprecatedApis", "[{\"fqcn\":\"com.example.OldApi\",\"member\":\"oldMethod\",\"migration\":\"Use NewApi\"}]",
+        "matchInherited", "true",
+        "issueAggregation", "FILE",
+        "maxIssuesPerApi", "5");
+
+    @AfterEach
+    void reset_published_state() {
+        CustomDeprecationSettings.publish(null);
+        ModuleState.endModule();
+    }
+
+    @Test
+    void test_active_rule_creates_the_check() {
+        CheckRegistrar.RegistrarContext context = new CheckRegistrar.RegistrarContext();
+        new CustomDeprecationCheckRegistrar().register(context);
+        CheckFactory checkFactory = new CheckFactory(new SingleRule(CustomDeprecationRulesDefinition.ruleKey(), PARAMS));
+
+        Collection<JavaCheck> mainChecks = checkFactory.<JavaCheck>create(context.repositoryKey())
+            .addAnnotatedChecks(context.checkClasses()).all();
+
+        assertEquals(1, mainChecks.size());
+        CustomDeprecationCheck check = assertInstanceOf(CustomDeprecationCheck.class, mainChecks.iterator().next());
+        assertEquals(PARAMS.get("deprecatedApis"), check.deprecatedApis);
+        assertEquals(5, check.maxIssuesPerApi);
+        assertFalse(context.testCheckClasses().iterator().hasNext());
+    }
+
+    record SingleRule(RuleKey ruleKey, Map<String, String> params) implements ActiveRules, ActiveRule {
+
+        @Override
+        public String severity() {
+            return "MINOR";
+        }
+
+        @Override
+        public String language() {
+            return CustomDeprecationRulesDefinition.LANGUAGE_KEY;
+        }
+
+        @Override
+        public String param(String key) {
+            return params.get(key);
+        }
+
+        @Override
+        public String internalKey() {
+            return null;
+        }
+
+        @Override
+        public String templateRuleKey() {
+            return null;
+        }
+
+        @Override
+        public String qpKey() {
+            return "profile";
+        }
+
+        @Override
+        public ActiveRule find(RuleKey key) {
+            return ruleKey.equals(key) ? this : null;
+        }
+
+        @Override
+        public Collection<ActiveRule> findAll() {
+            return List.of(this);
+        }
+
+        @Override
+        public Collection<ActiveRule> findByRepository(String repository) {
+            return ruleKey.repository().equals(repository) ? List.of(this) : List.of();
+        }
+
+        @Override
+        public Collection<ActiveRule> findByLanguage(String language) {
+            return List.of(this);
+        }
+
+        @Override
+        public ActiveRule findByInternalKey(String repository, String internalKey) {
+            return null;
+        }
+    }
+}
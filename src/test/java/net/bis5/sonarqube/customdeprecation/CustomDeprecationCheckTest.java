@@ -2,13 +2,28 @@
 package net.bis5.sonarqube.customdeprecation;
 
 import com.google.gson.JsonSyntaxException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.sonar.java.checks.verifier.CheckVerifier;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class CustomDeprecationCheckTest {
 
+    @AfterEach
+    void reset_published_state() {
+        CustomDeprecationSettings.publish(null);
+        ModuleState.endModule();
+    }
+
     @Test
     void test_method_invocation_deprecated() {
         CustomDeprecationCheck check = new CustomDeprecationCheck();
@@ -45,6 +60,18 @@ class CustomDeprecationCheckTest {
             .verifyIssues();
     }
 
+    @Test
+    void test_static_field_import_deprecated() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.Constants\",\"member\":\"OLD_VALUE\","
+            + "\"arguments\":null,\"migration\":\"Use Constants.NEW_VALUE\",\"note\":\"\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario13_StaticFieldImport.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
     @Test
     void test_constructor_call_deprecated() {
         CustomDeprecationCheck check = new CustomDeprecationCheck();
@@ -57,6 +84,32 @@ class CustomDeprecationCheckTest {
             .verifyIssues();
     }
 
+    @Test
+    void test_explicit_constructor_invocation_deprecated() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.LegacyBase\",\"member\":\"<init>\","
+            + "\"arguments\":null,\"migration\":\"Extend ModernBase instead\",\"note\":\"\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario19_ExplicitConstructorInvocation.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
+    @Test
+    void test_explicit_constructor_invocation_not_inherited() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.LegacyBase\",\"member\":\"<init>\","
+            + "\"arguments\":null,\"migration\":\"Extend ModernBase instead\",\"note\":\"\"}]";
+        check.matchInherited = true;
+
+        // this() in the subclass calls its own constructor, whatever the constructors of LegacyBase
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario19_ExplicitConstructorInvocation.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
     @Test
     void test_static_import_deprecated() {
         CustomDeprecationCheck check = new CustomDeprecationCheck();
@@ -136,6 +189,76 @@ class CustomDeprecationCheckTest {
             .verifyIssues();
     }
 
+    @Test
+    void test_inherited_matching_deprecated() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.matchInherited = true;
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.inherited.LegacyBase\",\"member\":\"oldMethod\","
+            + "\"arguments\":\"(java.lang.String)\",\"migration\":\"Use newMethod(String)\",\"note\":\"\"},"
+            + "{\"fqcn\":\"com.example.inherited.LegacyCloseable\",\"member\":\"release\","
+            + "\"arguments\":null,\"migration\":\"Use close()\",\"note\":\"\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario15_InheritedMatching.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
+    @Test
+    void test_message_template() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.templates.FrozenApi\",\"member\":\"run\","
+            + "\"arguments\":null,\"migration\":\"Use Executor\",\"note\":\"\","
+            + "\"message\":\"FrozenApi.{member}{signature} is frozen in {enclosingClass}. {migration}\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario16_MessageTemplate.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
+    @Test
+    void test_references_aggregated_per_file() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.issueAggregation = "FILE";
+        check.deprecatedApis = "["
+            + "{\"fqcn\":\"com.example.Ledger\",\"member\":\"post\",\"migration\":\"Use Ledger.record()\"},"
+            + "{\"fqcn\":\"com.example.Ledger\",\"member\":\"close\",\"migration\":\"Use Ledger.shutdown()\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario17_FileAggregation.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
+    @Test
+    void test_invalid_issue_aggregation_falls_back_to_none() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.issueAggregation = "file";
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.OldApi\",\"member\":\"oldMethod\","
+            + "\"arguments\":null,\"migration\":\"Use NewApi.newMethod()\",\"note\":\"\"}]";
+
+        // every reference is reported, as with NONE
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario1_BasicMethodCall.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
+    @Test
+    void test_issues_capped_per_api() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.maxIssuesPerApi = 2;
+        check.deprecatedApis = "["
+            + "{\"fqcn\":\"com.example.CappedLedger\",\"member\":\"post\",\"migration\":\"Use CappedLedger.record()\"},"
+            + "{\"fqcn\":\"com.example.CappedLedger\",\"member\":\"close\",\"migration\":\"Use CappedLedger.shutdown()\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario18_IssueCap.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
     @Test
     void test_migration_targets_not_flagged() {
         CustomDeprecationCheck check = new CustomDeprecationCheck();
@@ -169,6 +292,44 @@ class CustomDeprecationCheckTest {
             .verifyIssues();
     }
 
+    @Test
+    void test_type_reached_without_import_deprecated() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "[{\"fqcn\":\"java.util.List\",\"member\":\"clear\","
+            + "\"arguments\":null,\"migration\":\"Use removeAll\",\"note\":\"\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario12_ChainedReference.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
+    @Test
+    void test_unreferenced_config_no_issues() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.legacy.OldApi\",\"member\":\"oldMethod\","
+            + "\"arguments\":null,\"migration\":\"Use NewApi.newMethod()\",\"note\":\"\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario_CompliantOnly.java")
+            .withCheck(check)
+            .verifyNoIssues();
+    }
+
+    @Test
+    void test_wildcard_patterns_deprecated() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.legacy.io.LegacyReader\",\"member\":\"getSize\","
+            + "\"arguments\":null,\"migration\":\"Use Files.size()\",\"note\":\"\"},"
+            + "{\"fqcn\":\"com.example.legacy.**\",\"member\":\"get*\","
+            + "\"arguments\":null,\"migration\":\"Use the NIO readers\",\"note\":\"\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario14_WildcardPatterns.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
     @Test
     void test_empty_config_no_errors() {
         CustomDeprecationCheck check = new CustomDeprecationCheck();
@@ -180,6 +341,42 @@ class CustomDeprecationCheckTest {
             .verifyNoIssues();
     }
 
+    @Test
+    void test_malformed_entry_does_not_discard_configuration() {
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "["
+            + "{\"fqcn\":\"com.example.OldApi\",\"member\":[\"oldMethod\"],\"migration\":\"Broken\"},"
+            + "{\"fqcn\":\"com.example.OldApi\",\"member\":\"oldMethod\","
+            + "\"arguments\":null,\"migration\":\"Use NewApi.newMethod()\",\"note\":\"\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario1_BasicMethodCall.java")
+            .withCheck(check)
+            .verifyIssues();
+    }
+
+    @Test
+    void test_summary_sensor_ends_module_analysis(@TempDir Path workDir) throws IOException {
+        ModuleState.startModule();
+        CustomDeprecationCheck check = new CustomDeprecationCheck();
+        check.deprecatedApis = "[{\"fqcn\":\"com.example.OldApi\",\"member\":\"oldMethod\","
+            + "\"arguments\":null,\"migration\":\"Use NewApi.newMethod()\",\"note\":\"\"}]";
+
+        CheckVerifier.newVerifier()
+            .onFile("src/test/files/Scenario1_BasicMethodCall.java")
+            .withCheck(check)
+            .verifyIssues();
+        new CustomDeprecationSummarySensor().endModule(
+            new CustomDeprecationCheckRegistrarTest.SingleRule(CustomDeprecationRulesDefinition.ruleKey(), Map.of()),
+            new BatchAnalyzer.MapConfiguration(Map.of(CustomDeprecationSettings.METRICS_REPORT_KEY, "true")),
+            workDir.toFile());
+
+        assertNull(ModuleState.endModule());
+        try (Stream<Path> reports = Files.list(workDir)) {
+            assertEquals(1, reports.filter(file -> file.getFileName().toString().startsWith(CheckMetrics.REPORT_FILE_PREFIX)).count());
+        }
+    }
+
     @Test
     void test_invalid_json_config_handled() {
         assertThrows(JsonSyntaxException.class,
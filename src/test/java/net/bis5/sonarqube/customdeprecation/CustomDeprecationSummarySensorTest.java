@@ -0,0 +1,69 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.rule.RuleKey;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomDeprecationSummarySensorTest {
+
+    private static final BatchAnalyzer.MapConfiguration METRICS_REPORT =
+        new BatchAnalyzer.MapConfiguration(Map.of(CustomDeprecationSettings.METRICS_REPORT_KEY, "true"));
+
+    @AfterEach
+    void reset_published_state() {
+        ModuleState.endModule();
+    }
+
+    @Test
+    void test_reports_are_written_to_the_directory_seen_by_the_checks(@TempDir Path workDir, @TempDir Path rootWorkDir) throws IOException {
+        ModuleState module = ModuleState.startModule();
+        module.useReportDirectory(rootWorkDir.toFile());
+
+        new CustomDeprecationSummarySensor().endModule(activeRule(), METRICS_REPORT, workDir.toFile());
+
+        assertNull(ModuleState.endModule());
+        assertEquals(1, countReports(rootWorkDir));
+        assertEquals(0, countReports(workDir));
+    }
+
+    @Test
+    void test_inactive_rule_discards_the_module(@TempDir Path workDir) throws IOException {
+        ModuleState.startModule();
+
+        new CustomDeprecationSummarySensor().endModule(
+            new CustomDeprecationCheckRegistrarTest.SingleRule(RuleKey.of("other", "rule"), Map.of()), METRICS_REPORT, workDir.toFile());
+
+        assertNull(ModuleState.endModule());
+        assertEquals(0, countReports(workDir));
+    }
+
+    @Test
+    void test_nothing_is_written_without_a_published_module(@TempDir Path workDir) throws IOException {
+        new CustomDeprecationSummarySensor().endModule(activeRule(), METRICS_REPORT, workDir.toFile());
+
+        try (Stream<Path> files = Files.list(workDir)) {
+            assertTrue(files.findAny().isEmpty());
+        }
+    }
+
+    private static CustomDeprecationCheckRegistrarTest.SingleRule activeRule() {
+        return new CustomDeprecationCheckRegistrarTest.SingleRule(CustomDeprecationRulesDefinition.ruleKey(), Map.of());
+    }
+
+    private static long countReports(Path directory) throws IOException {
+        try (Stream<Path> reports = Files.list(directory)) {
+            return reports.filter(file -> file.getFileName().toString().startsWith(CheckMetrics.REPORT_FILE_PREFIX)).count();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.StringReader;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeprecatedApiCatalogReaderTest {
+
+    @Test
+    void test_malformed_entries_are_skipped_individually() {
+        DeprecatedApiMatcher.Builder builder = new DeprecatedApiMatcher.Builder();
+        DeprecatedApiCatalogReader reader = new DeprecatedApiCatalogReader(builder);
+
+        int read = reader.read(new StringReader("["
+            + "{\"member\":\"noFqcn\",\"migration\":\"m\"},"
+            + "{\"fqcn\":[\"com.example.Api\"],\"member\":\"run\"},"
+            + "null,"
+            + "\"text\","
+            + "{\"fqcn\":\"com.example.Api\",\"member\":\"run\",\"migration\":\"Use start()\",\"unknown\":{\"a\":1}}"
+            + "]"), "test");
+
+        assertEquals(5, read);
+        assertEquals(4, builder.compile().malformedEntries());
+        assertEquals("Use start()", builder.build().match("com.example.Api", "run", null).migration());
+    }
+
+    @Test
+    void test_warnings_name_the_source_and_position_of_entries() {
+        DeprecatedApiMatcher.Builder builder = new DeprecatedApiMatcher.Builder();
+        DeprecatedApiCatalogReader reader = new DeprecatedApiCatalogReader(builder);
+
+        reader.read(new StringReader("["
+            + "{\"fqcn\":\"com.example.Api\",\"member\":\"run\",\"migration\":\"Use start()\"},"
+            + "{\"fqcn\":\"com.example.Api\",\"member\":\"\"}"
+            + "]"), "deprecatedApis rule parameter");
+        reader.read(new StringReader("["
+            + "42,"
+            + "{\"fqcn\":\"com.example.Api \",\"member\":\"run\"},"
+            + "{\"fqcn\":\"com.example.Api\",\"member\":\"run\",\"migration\":\"Use start()\"},"
+            + "{\"fqcn\":\"com.example.Api\",\"member\":\"run\",\"migration\":\"Use stop()\"}"
+            + "]"), "catalog.json");
+
+        assertEquals(List.of(
+            "Ignoring entry #2 of deprecatedApis rule parameter: missing member.",
+            "Ignoring entry #1 of catalog.json: not a JSON object.",
+            "Ignoring entry #2 of catalog.json: malformed fqcn 'com.example.Api '.",
+            "Entry #3 of catalog.json duplicates entry #1 of deprecatedApis rule parameter.",
+            "Entry #4 of catalog.json never matches: entry #1 of deprecatedApis rule parameter targets the same API "
+                + "with another message and takes precedence."), builder.compile().warnings());
+    }
+
+    @Test
+    void test_truncated_document_keeps_entries_read_so_far() {
+        DeprecatedApiMatcher.Builder builder = new DeprecatedApiMatcher.Builder();
+        DeprecatedApiCatalogReader reader = new DeprecatedApiCatalogReader(builder);
+
+        int added = reader.read(new StringReader("["
+            + "{\"fqcn\":\"com.example.Api\",\"member\":\"run\",\"migration\":\"Use start()\"},"
+            + "{\"fqcn\":\"com.example.Api\",\"member\":"), "test");
+
+        assertEquals(1, added);
+        assertNotNull(builder.build().match("com.example.Api", "run", null));
+    }
+
+    @Test
+    void test_blank_and_non_array_documents() {
+        DeprecatedApiMatcher.Builder builder = new DeprecatedApiMatcher.Builder();
+        DeprecatedApiCatalogReader reader = new DeprecatedApiCatalogReader(builder);
+
+        assertEquals(0, reader.read(new StringReader("  "), "blank"));
+        assertEquals(0, reader.read(new StringReader("{ invalid json"), "object"));
+        assertTrue(builder.build().isEmpty());
+    }
+
+    @Test
+    void test_repeated_names_share_one_instance() {
+        DeprecatedApiMatcher.Builder builder = new DeprecatedApiMatcher.Builder();
+        DeprecatedApiCatalogReader reader = new DeprecatedApiCatalogReader(builder);
+
+        reader.read(new StringReader("["
+            + "{\"fqcn\":\"com.example.Api\",\"member\":\"run\",\"arguments\":\"()\",\"migration\":\"a\"},"
+            + "{\"fqcn\":\"com.example.Api\",\"member\":\"stop\",\"migration\":\"b\"}"
+            + "]"), "test");
+        DeprecatedApiMatcher matcher = builder.build();
+
+        assertSame(matcher.match("com.example.Api", "run", ArgumentSignature.parse("()")).fqcn(),
+            matcher.match("com.example.Api", "stop", null).fqcn());
+    }
+}
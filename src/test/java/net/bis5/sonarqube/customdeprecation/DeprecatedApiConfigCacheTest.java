@@ -0,0 +1,92 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeprecatedApiConfigCacheTest {
+
+    private static final String CONFIG = "[{\"fqcn\":\"com.example.OldApi\",\"member\":\"oldMethod\","
+        + "\"arguments\":null,\"migration\":\"Use NewApi.newMethod()\",\"note\":\"\"}]";
+
+    @Test
+    void test_same_content_is_parsed_once() {
+        DeprecatedApiMatcher first = DeprecatedApiConfigCache.get(CONFIG);
+        DeprecatedApiMatcher second = DeprecatedApiConfigCache.get(new String(CONFIG));
+
+        assertSame(first, second);
+        assertNotNull(first.match("com.example.OldApi", "oldMethod", ArgumentSignature.parse("()")));
+    }
+
+    @Test
+    void test_changed_content_is_reparsed() {
+        DeprecatedApiMatcher first = DeprecatedApiConfigCache.get(CONFIG);
+        DeprecatedApiMatcher second = DeprecatedApiConfigCache.get("[]");
+
+        assertNotSame(first, second);
+        assertTrue(second.isEmpty());
+    }
+
+    @Test
+    void test_invalid_json_is_cached_as_empty() {
+        assertTrue(DeprecatedApiConfigCache.get("{ invalid json").isEmpty());
+    }
+
+    @Test
+    void test_catalog_file_is_merged_after_rule_parameter(@TempDir Path baseDir) throws IOException {
+        Path file = baseDir.resolve("catalog.json");
+        Files.write(file, ("[{\"fqcn\":\"com.example.OldApi\",\"member\":\"oldMethod\","
+            + "\"migration\":\"From catalog\"},{\"fqcn\":\"com.example.OldApi\",\"member\":\"other\","
+            + "\"migration\":\"Other from catalog\"}]").getBytes(StandardCharsets.UTF_8));
+        CatalogLocation catalog = CatalogLocation.resolve("catalog.json", baseDir);
+
+        DeprecatedApiMatcher matcher = DeprecatedApiConfigCache.get(CONFIG, catalog);
+
+        assertEquals("Use NewApi.newMethod()", matcher.match("com.example.OldApi", "oldMethod", ArgumentSignature.parse("()")).migration());
+        assertEquals("Other from catalog", matcher.match("com.example.OldApi", "other", ArgumentSignature.parse("()")).migration());
+        assertSame(matcher, DeprecatedApiConfigCache.get(CONFIG, CatalogLocation.resolve("catalog.json", baseDir)));
+    }
+
+    @Test
+    void test_changed_catalog_file_is_reloaded(@TempDir Path baseDir) throws IOException {
+        Path file = baseDir.resolve("catalog.json");
+        Files.write(file, "[]".getBytes(StandardCharsets.UTF_8));
+        CatalogLocation catalog = CatalogLocation.resolve(file.toString(), null);
+        DeprecatedApiMatcher first = DeprecatedApiConfigCache.get("[]", catalog);
+
+        Files.write(file, "[{\"fqcn\":\"com.example.Api\",\"member\":\"run\",\"migration\":\"m\"}]"
+            .getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        DeprecatedApiMatcher second = DeprecatedApiConfigCache.get("[]", catalog);
+
+        assertTrue(first.isEmpty());
+        assertNotNull(second.match("com.example.Api", "run", null));
+    }
+
+    @Test
+    void test_catalog_classpath_resource() {
+        DeprecatedApiMatcher matcher = DeprecatedApiConfigCache.get("[]", CatalogLocation.resolve("classpath:catalog/test-catalog.json", null));
+
+        assertEquals("Use Constants.NEW_VALUE", matcher.match("com.example.Constants", "OLD_VALUE", null).migration());
+    }
+
+    @Test
+    void test_missing_catalog_uses_rule_parameter(@TempDir Path baseDir) {
+        DeprecatedApiMatcher matcher = DeprecatedApiConfigCache.get(CONFIG, CatalogLocation.resolve("missing.json", baseDir));
+
+        assertNotNull(matcher.match("com.example.OldApi", "oldMethod", null));
+        assertNull(CatalogLocation.resolve(" ", baseDir));
+    }
+}
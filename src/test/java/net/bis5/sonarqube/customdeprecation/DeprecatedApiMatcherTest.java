@@ -0,0 +1,322 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeprecatedApiMatcherTest {
+
+    private static final String[] FQCNS = {"com.example.Api", "com.example.Other", "com.example.Missing", null};
+    private static final String[] MEMBERS = {"process", "<init>", "CONST", "missing", null};
+    private static final String[] ARGUMENTS = {null, "", "()", "(java.lang.String)", "(int)", "(java.lang.String,int)"};
+
+    @Test
+    void test_all_overloads_entry_first_wins_over_specific() {
+        List<DeprecatedApiConfig> configs = DeprecatedApiConfig.parseFromJson("["
+            + entry("com.example.Api", "process", null, "all") + ","
+            + entry("com.example.Api", "process", "(java.lang.String)", "specific")
+            + "]");
+
+        DeprecatedApiMatcher matcher = DeprecatedApiMatcher.compile(configs);
+
+        assertEquals("all", matcher.match("com.example.Api", "process", signature("(java.lang.String)")).migration());
+        assertEquals("all", matcher.match("com.example.Api", "process", signature("(int)")).migration());
+    }
+
+    @Test
+    void test_specific_entry_first_wins_over_all_overloads() {
+        List<DeprecatedApiConfig> configs = DeprecatedApiConfig.parseFromJson("["
+            + entry("com.example.Api", "process", "(java.lang.String)", "specific") + ","
+            + entry("com.example.Api", "process", "(java.lang.String)", "duplicate") + ","
+            + entry("com.example.Api", "process", "", "all")
+            + "]");
+
+        DeprecatedApiMatcher matcher = DeprecatedApiMatcher.compile(configs);
+
+        assertEquals("specific", matcher.match("com.example.Api", "process", signature("(java.lang.String)")).migration());
+        assertEquals("all", matcher.match("com.example.Api", "process", signature("(int)")).migration());
+        assertEquals("all", matcher.match("com.example.Api", "process", null).migration());
+    }
+
+    @Test
+    void test_specific_entry_does_not_match_without_arguments() {
+        List<DeprecatedApiConfig> configs = DeprecatedApiConfig.parseFromJson("["
+            + entry("com.example.Api", "process", "()", "specific")
+            + "]");
+
+        DeprecatedApiMatcher matcher = DeprecatedApiMatcher.compile(configs);
+
+        assertNull(matcher.match("com.example.Api", "process", null));
+        assertNull(matcher.match("com.example.Api", "process", signature("(int)")));
+        assertNull(matcher.match(null, "process", signature("()")));
+    }
+
+    @Test
+    void test_arguments_needed_only_for_specific_entries() {
+        List<DeprecatedApiConfig> configs = DeprecatedApiConfig.parseFromJson("["
+            + entry("com.example.Api", "process", null, "all") + ","
+            + entry("com.example.Api", "run", "()", "specific")
+            + "]");
+
+        DeprecatedApiMatcher matcher = DeprecatedApiMatcher.compile(configs);
+
+        assertFalse(matcher.find("com.example.Api", "process").needsArguments());
+        assertTrue(matcher.find("com.example.Api", "run").needsArguments());
+        assertNull(matcher.find("com.example.Api", "missing"));
+        assertNull(matcher.find("com.example.Missing", "run"));
+    }
+
+    @Test
+    void test_empty_configuration() {
+        assertSame(DeprecatedApiMatcher.EMPTY, DeprecatedApiMatcher.compile(List.of()));
+        assertTrue(DeprecatedApiMatcher.compile(DeprecatedApiConfig.parseFromJson("[{\"member\":\"m\"}]")).isEmpty());
+    }
+
+    @Test
+    void test_same_result_as_linear_matches() {
+        List<DeprecatedApiConfig> configs = DeprecatedApiConfig.parseFromJson("["
+            + entry("com.example.Api", "process", "(java.lang.String)", "1") + ","
+            + entry("com.example.Api", "process", null, "2") + ","
+            + entry("com.example.Api", "process", "(int)", "3") + ","
+            + entry("com.example.Api", "<init>", "()", "4") + ","
+            + entry("com.example.Api", "<init>", "(java.lang.String,int)", "5") + ","
+            + entry("com.example.Other", "CONST", null, "6") + ","
+            + entry("com.example.Other", "process", "", "7") + ","
+            + entry("com.example.Other", "process", "(int)", "8") + ","
+            + entry(null, "process", null, "9")
+            + "]");
+
+        DeprecatedApiMatcher matcher = DeprecatedApiMatcher.compile(configs);
+
+        for (String fqcn : FQCNS) {
+            for (String member : MEMBERS) {
+                for (String arguments : ARGUMENTS) {
+                    assertEquals(firstMatch(configs, fqcn, member, arguments),
+                        order(matcher.match(fqcn, member, signature(arguments))));
+                }
+            }
+        }
+    }
+
+    @Test
+    void test_wildcard_patterns() {
+        assertTrue(ApiPattern.matchesType("com.acme.legacy.**", "com.acme.legacy.Api"));
+        assertTrue(ApiPattern.matchesType("com.acme.legacy.**", "com.acme.legacy.io.Reader$Entry"));
+        assertFalse(ApiPattern.matchesType("com.acme.legacy.**", "com.acme.legacyx.Api"));
+        assertTrue(ApiPattern.matchesType("com.acme.*.Api", "com.acme.legacy.Api"));
+        assertFalse(ApiPattern.matchesType("com.acme.*", "com.acme.legacy.Api"));
+        assertTrue(ApiPattern.matchesType("com.**.Old*", "com.acme.legacy.OldApi"));
+        assertTrue(ApiPattern.matchesGlob("get*", "getName"));
+        assertTrue(ApiPattern.matchesGlob("*Legacy*Api", "MyLegacyOldApi"));
+        assertFalse(ApiPattern.matchesGlob("*ab*ba", "aba"));
+        assertFalse(ApiPattern.matchesGlob("get*", "setName"));
+    }
+
+    @Test
+    void test_patterns_same_result_as_linear_matches() {
+        List<DeprecatedApiConfig> configs = DeprecatedApiConfig.parseFromJson("["
+            + entry("com.example.legacy.io.Reader", "read", "()", "1") + ","
+            + entry("com.example.legacy.**", "get*", null, "2") + ","
+            + entry("com.example.legacy.io.Reader", "getName", null, "3") + ","
+            + entry("com.example.*.io.*", "close", "(int)", "4") + ","
+            + entry("com.example.legacy.**", "close", null, "5") + ","
+            + entry("com.example.**.Reader", "*", null, "6") + ","
+            + entry("com.**", "<init>", "()", "7")
+            + "]");
+        String[] fqcns = {"com.example.legacy.io.Reader", "com.example.legacy.Api", "com.example.other.io.Reader",
+            "com.example.Reader", "org.example.Reader", null};
+        String[] members = {"read", "getName", "get", "close", "open", "<init>", null};
+
+        DeprecatedApiMatcher matcher = DeprecatedApiMatcher.compile(configs);
+
+        for (String fqcn : fqcns) {
+            DeprecatedApiMatcher.TypeBucket bucket = matcher.bucket(fqcn);
+            for (String member : members) {
+                for (String arguments : ARGUMENTS) {
+                    assertEquals(firstMatch(configs, fqcn, member, arguments),
+                        order(matcher.match(fqcn, member, signature(arguments))));
+                    if (member != null) {
+                        DeprecatedApiMatcher.MemberEntry entry = bucket == null ? null : bucket.find(member);
+                        assertEquals(firstMatch(configs, fqcn, member, arguments),
+                            order(entry == null ? null : entry.match(signature(arguments))));
+                    }
+                }
+            }
+        }
+        assertNull(matcher.bucket("org.example.Reader"));
+        assertTrue(matcher.isConfiguredMember("getSize"));
+        assertSame(ReferencePrefilter.ALL, matcher.prefilter());
+    }
+
+    @Test
+    void test_partitioned_compilation_same_result_as_linear_matches() {
+        StringBuilder json = new StringBuilder("[");
+        int size = CatalogCompiler.PARTITION_SIZE * 3;
+        for (int i = 0; i < size; i++) {
+            String arguments = i % 3 == 0 ? null : i % 3 == 1 ? "()" : "(int)";
+            json.append(i == 0 ? "" : ",").append(entry("com.example.Api" + (i % 97), "m" + (i % 89), arguments, "" + i));
+        }
+        List<DeprecatedApiConfig> configs = DeprecatedApiConfig.parseFromJson(json.append("]").toString());
+
+        DeprecatedApiMatcher matcher = DeprecatedApiMatcher.compile(configs);
+
+        for (int type = 0; type < 97; type += 7) {
+            for (int member = 0; member < 89; member += 5) {
+                for (String arguments : ARGUMENTS) {
+                    String fqcn = "com.example.Api" + type;
+                    String name = "m" + member;
+                    assertEquals(firstMatch(configs, fqcn, name, arguments),
+                        order(matcher.match(fqcn, name, signature(arguments))));
+                }
+            }
+        }
+        // the partitions are compiled with their own pools, merged before indexing
+        Map<String, String> members = new HashMap<>();
+        for (DeprecatedApi api : matcher.entries()) {
+            assertSame(members.computeIfAbsent(api.member(), member -> member), api.member());
+        }
+    }
+
+    @Test
+    void test_validation_counts_malformed_duplicate_and_conflicting_entries() {
+        CatalogCompiler.Result result = CatalogCompiler.compile(List.of(
+            new CatalogCompiler.Entry(0, "com.example.Api", "run", null, "Use start()", null, null),
+            new CatalogCompiler.Entry(1, "com.example.Api", "run", "(int)", "Use start()", null, null),
+            new CatalogCompiler.Entry(2, "com.example.Api", "run", null, "Use stop()", null, null),
+            new CatalogCompiler.Entry(3, "com.example.Api", "stop", "(int)", "Use halt()", null, null),
+            new CatalogCompiler.Entry(4, "com.example.Api", "stop", "(int)", "Use halt()", null, null),
+            new CatalogCompiler.Entry(5, "com.example..Api", "run", null, "", null, null),
+            new CatalogCompiler.Entry(6, "com.example.Api", "run()", null, "", null, null),
+            new CatalogCompiler.Entry(7, "com.example.Api", "run", "int", "", null, null),
+            new CatalogCompiler.Entry(8, null, "run", null, "", null, null),
+            new CatalogCompiler.Entry(9, "com.example.**", "get*", null, "Use records", null, null),
+            new CatalogCompiler.Entry(10, "com.example.**", "get*", null, "Use records", null, null)));
+
+        assertEquals(4, result.malformedEntries());
+        assertEquals(3, result.duplicateEntries());
+        assertEquals(1, result.conflictingEntries());
+        assertTrue(CatalogCompiler.isWellFormedType("com.example.Outer$Inner"));
+        assertTrue(CatalogCompiler.isWellFormedType("com.*.legacy.**"));
+        assertFalse(CatalogCompiler.isWellFormedType("com.example.Api "));
+        assertTrue(CatalogCompiler.isWellFormedMember("<init>"));
+        assertFalse(CatalogCompiler.isWellFormedMember("<clinit>"));
+    }
+
+    @Test
+    void test_name_filter_never_rejects_configured_names() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            names.add("legacyMethod" + i);
+        }
+        NameFilter filter = NameFilter.of(names);
+
+        names.forEach(name -> assertTrue(filter.mightContain(name)));
+        int accepted = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("unrelated" + i)) {
+                accepted++;
+            }
+        }
+        assertTrue(accepted < 200, accepted + " false positives");
+        assertTrue(NameFilter.ALL.mightContain("anything"));
+    }
+
+    @Test
+    void test_unconfigured_names_are_rejected() {
+        DeprecatedApiMatcher matcher = new DeprecatedApiMatcher.Builder()
+            .add("com.example.Api", "run", null, "Use start()", null)
+            .build();
+
+        assertTrue(matcher.isConfiguredMember("run"));
+        assertFalse(matcher.isConfiguredMember("toString"));
+        assertNull(matcher.find("java.lang.Object", "run"));
+        DeprecatedApiMatcher withPatterns = new DeprecatedApiMatcher.Builder()
+            .add("com.example.**", "get*", null, "Use records", null)
+            .build();
+        assertTrue(withPatterns.isConfiguredMember("getName"));
+        assertFalse(withPatterns.isConfiguredMember("size"));
+    }
+
+    @Test
+    void test_member_patterns_indexed_by_prefix() {
+        DeprecatedApiMatcher matcher = new DeprecatedApiMatcher.Builder()
+            .add("com.example.Api", "getLegacy*", null, "first", null)
+            .add("com.example.Api", "get*", "(int)", "second", null)
+            .add("com.example.Api", "getLegacyName", null, "third", null)
+            .add("com.example.Api", "*Old", null, "fourth", null)
+            .add("com.example.**", "g*", null, "fifth", null)
+            .build();
+
+        assertEquals("first", matcher.match("com.example.Api", "getLegacyName", signature("(int)")).migration());
+        assertEquals("second", matcher.match("com.example.Api", "getName", signature("(int)")).migration());
+        assertEquals("fifth", matcher.match("com.example.Api", "getName", signature("()")).migration());
+        assertEquals("fourth", matcher.match("com.example.Api", "setOld", null).migration());
+        assertEquals("fifth", matcher.match("com.example.io.Reader", "getLegacyName", null).migration());
+        assertNull(matcher.find("com.example.Api", "set"));
+        assertTrue(matcher.isConfiguredMember("getLegacyName"));
+        assertTrue(matcher.isConfiguredMember("gone"));
+        assertTrue(matcher.isConfiguredMember("Old"));
+        assertFalse(matcher.isConfiguredMember("set"));
+        assertFalse(matcher.isConfiguredMember(""));
+    }
+
+    @Test
+    void test_signature_parsing() {
+        assertSame(ArgumentSignature.NO_ARGUMENTS, ArgumentSignature.parse("()"));
+        assertEquals(ArgumentSignature.of("java.lang.String", "int"), ArgumentSignature.parse("(java.lang.String,int)"));
+        assertEquals(ArgumentSignature.of("java.util.Map<K,V>"), ArgumentSignature.parse("(java.util.Map<K,V>)"));
+        assertEquals("(java.lang.String,int)", ArgumentSignature.parse("(java.lang.String,int)").toString());
+        assertNotEquals(ArgumentSignature.of("java.lang.String", "int"), ArgumentSignature.parse("(java.lang.String, int)"));
+        assertNull(ArgumentSignature.parse("java.lang.String"));
+    }
+
+    @Test
+    void test_repeated_text_is_shared() {
+        DeprecatedApiMatcher matcher = new DeprecatedApiMatcher.Builder()
+            .add(new String("com.example.Api"), "process", "(java.lang.String)", new String("Use run()"), null)
+            .add(new String("com.example.Api"), "stop", new String("(java.lang.String)"), new String("Use run()"), null)
+            .build();
+
+        DeprecatedApi process = matcher.match("com.example.Api", "process", signature("(java.lang.String)"));
+        DeprecatedApi stop = matcher.match("com.example.Api", "stop", signature("(java.lang.String)"));
+        assertSame(process.fqcn(), stop.fqcn());
+        assertSame(process.migration(), stop.migration());
+        assertSame(process.signature(), stop.signature());
+    }
+
+    private static int firstMatch(List<DeprecatedApiConfig> configs, String fqcn, String member, String arguments) {
+        for (int i = 0; i < configs.size(); i++) {
+            if (configs.get(i).matches(fqcn, member, arguments)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int order(DeprecatedApi api) {
+        return api == null ? -1 : api.order();
+    }
+
+    private static ArgumentSignature signature(String arguments) {
+        return arguments == null || arguments.isEmpty() ? null : ArgumentSignature.parse(arguments);
+    }
+
+    private static String entry(String fqcn, String member, String arguments, String migration) {
+        return "{\"fqcn\":" + quote(fqcn) + ",\"member\":" + quote(member) + ",\"arguments\":" + quote(arguments)
+            + ",\"migration\":" + quote(migration) + ",\"note\":\"\"}";
+    }
+
+    private static String quote(String value) {
+        return value == null ? "null" : "\"" + value + "\"";
+    }
+}
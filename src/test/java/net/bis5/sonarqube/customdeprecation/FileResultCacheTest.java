@@ -0,0 +1,139 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileResultCacheTest {
+
+    private static final String MODULE = "project";
+
+    private static final String CONFIGURATION = FileResultCache.configurationKey("catalog", "matchInherited=false");
+
+    private static final FileResultCache.CachedIssue ISSUE =
+        new FileResultCache.CachedIssue(Tree.Kind.METHOD_INVOCATION, 3, 8, 3, 24, 0, "This API is deprecated for this project. Use start()");
+
+    @Test
+    void test_unchanged_file_result_is_reused(@TempDir Path dir) {
+        Path binaries = dir.resolve("classes");
+        FileResultCache first = FileResultCache.load(dir, MODULE, CONFIGURATION, List.of(binaries));
+        first.put("project:src/Client.java", FileResultCache.contentHash("class Client {}"), Set.of("com.example.Api"),
+            List.of(ISSUE));
+        first.put("project:src/Clean.java", FileResultCache.contentHash("class Clean {}"), Set.of(), List.of());
+        first.save();
+
+        FileResultCache second = FileResultCache.load(dir, MODULE, CONFIGURATION, List.of(binaries));
+
+        FileResultCache.FileResult result = second.lookup("project:src/Client.java", FileResultCache.contentHash("class Client {}"));
+        assertNotNull(result);
+        assertEquals(List.of(ISSUE), result.issues());
+        assertEquals(List.of("com.example.Api"), result.dependencies());
+        assertNotNull(second.lookup("project:src/Clean.java", FileResultCache.contentHash("class Clean {}")));
+        assertEquals(2, second.reusedResults());
+    }
+
+    @Test
+    void test_modules_sharing_the_directory_keep_their_results(@TempDir Path dir) {
+        for (String module : List.of("project:core", "project:web")) {
+            FileResultCache cache = FileResultCache.load(dir, module, CONFIGURATION, List.of());
+            cache.put(module + ":src/Client.java", FileResultCache.contentHash("class Client {}"), Set.of(), List.of(ISSUE));
+            cache.save();
+        }
+
+        for (String module : List.of("project:core", "project:web")) {
+            assertNotNull(FileResultCache.load(dir, module, CONFIGURATION, List.of())
+                .lookup(module + ":src/Client.java", FileResultCache.contentHash("class Client {}")));
+        }
+    }
+
+    @Test
+    void test_changed_content_or_configuration_is_analyzed(@TempDir Path dir) {
+        FileResultCache first = FileResultCache.load(dir, MODULE, CONFIGURATION, List.of());
+        first.put("project:src/Client.java", FileResultCache.contentHash("class Client {}"), Set.of(), List.of(ISSUE));
+        first.save();
+
+        assertNull(FileResultCache.load(dir, MODULE, CONFIGURATION, List.of())
+            .lookup("project:src/Client.java", FileResultCache.contentHash("class Client { }")));
+        String otherCatalog = FileResultCache.configurationKey("other catalog", "matchInherited=false");
+        assertNotEquals(CONFIGURATION, otherCatalog);
+        assertNull(FileResultCache.load(dir, MODULE, otherCatalog, List.of())
+            .lookup("project:src/Client.java", FileResultCache.contentHash("class Client {}")));
+    }
+
+    @Test
+    void test_changed_dependency_class_is_analyzed(@TempDir Path dir) throws IOException {
+        Path binaries = dir.resolve("classes");
+        Path classFile = binaries.resolve("com/example/Api.class");
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, new byte[] {1, 2, 3});
+        Files.setLastModifiedTime(classFile, FileTime.fromMillis(1_000_000L));
+        FileResultCache first = FileResultCache.load(dir, MODULE, CONFIGURATION, List.of(binaries));
+        first.put("project:src/Client.java", FileResultCache.contentHash("class Client {}"), Set.of("com.example.Api"),
+            List.of(ISSUE));
+        first.put("project:src/Other.java", FileResultCache.contentHash("class Other {}"), Set.of("com.example.Other"),
+            List.of());
+        first.save();
+
+        Files.setLastModifiedTime(classFile, FileTime.fromMillis(2_000_000L));
+        FileResultCache second = FileResultCache.load(dir, MODULE, CONFIGURATION, List.of(binaries));
+
+        assertNull(second.lookup("project:src/Client.java", FileResultCache.contentHash("class Client {}")));
+        assertNotNull(second.lookup("project:src/Other.java", FileResultCache.contentHash("class Other {}")));
+    }
+
+    @Test
+    void test_library_stamp_follows_library_files(@TempDir Path dir) throws IOException {
+        Path jar = dir.resolve("lib/api/api.jar");
+        Files.createDirectories(jar.getParent());
+        Files.write(jar, new byte[] {1, 2, 3});
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(1_000_000L));
+        List<String> file = List.of(jar.toString());
+        List<String> directory = List.of(dir.resolve("lib").toString());
+        List<String> pattern = List.of(dir.resolve("lib").toString() + "/**/*.jar");
+        String fileStamp = FileResultCache.libraryStamp(file);
+        String directoryStamp = FileResultCache.libraryStamp(directory);
+        String patternStamp = FileResultCache.libraryStamp(pattern);
+        assertTrue(patternStamp.contains(jar.toString()));
+
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(2_000_000L));
+
+        assertNotEquals(fileStamp, FileResultCache.libraryStamp(file));
+        assertNotEquals(directoryStamp, FileResultCache.libraryStamp(directory));
+        assertNotEquals(patternStamp, FileResultCache.libraryStamp(pattern));
+        assertEquals(FileResultCache.libraryStamp(pattern), FileResultCache.libraryStamp(pattern));
+    }
+
+    @Test
+    void test_files_not_seen_are_dropped(@TempDir Path dir) {
+        FileResultCache first = FileResultCache.load(dir, MODULE, CONFIGURATION, List.of());
+        first.put("project:src/Deleted.java", FileResultCache.contentHash(""), Set.of(), List.of());
+        first.save();
+        FileResultCache.load(dir, MODULE, CONFIGURATION, List.of()).save();
+
+        assertNull(FileResultCache.load(dir, MODULE, CONFIGURATION, List.of()).lookup("project:src/Deleted.java",
+            FileResultCache.contentHash("")));
+    }
+
+    @Test
+    void test_unreadable_cache_is_ignored(@TempDir Path dir) throws IOException {
+        Files.write(dir.resolve(FileResultCache.fileName(MODULE)), new byte[] {0x43, 0x44, 0x46, 0x52, 0, 0, 0, 1, 0});
+
+        FileResultCache cache = FileResultCache.load(dir, MODULE, CONFIGURATION, List.of());
+
+        assertEquals(0, cache.reusedResults());
+        assertTrue(FileResultCache.locate(null, List.of()).isEmpty());
+    }
+}
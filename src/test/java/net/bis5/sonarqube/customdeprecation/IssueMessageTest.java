@@ -0,0 +1,41 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IssueMessageTest {
+
+    @Test
+    void test_default_message_is_rendered_once() {
+        IssueMessage message = IssueMessage.compile(null, "com.example.Api", "run", null, "Use start()", "Removed in 3.0");
+
+        assertTrue(message.isConstant());
+        assertEquals("This API is deprecated for this project. Use start() (Removed in 3.0)", message.constant());
+        assertEquals("This API is deprecated for this project. ", IssueMessage.compile("", "a.B", "m", null, null, "").constant());
+    }
+
+    @Test
+    void test_entry_placeholders_are_rendered_once() {
+        IssueMessage message = IssueMessage.compile("{fqcn}#{member}{arguments} is frozen: {migration}{note} {unknown}",
+            "com.example.Api", "run", ArgumentSignature.parse("(int)"), "{signature}", null);
+
+        assertTrue(message.isConstant());
+        assertEquals("com.example.Api#run(int) is frozen: {signature} {unknown}", message.constant());
+    }
+
+    @Test
+    void test_site_placeholders_are_filled_per_issue() {
+        IssueMessage message = IssueMessage.compile("{member}{signature} called from {enclosingClass}{",
+            "com.example.Api", "run", null, null, null);
+
+        assertFalse(message.isConstant());
+        assertEquals("run(java.lang.String) called from com.example.Caller{", message.format(placeholder ->
+            placeholder == IssueMessage.Placeholder.SIGNATURE ? "(java.lang.String)" : "com.example.Caller"));
+        assertEquals(message, IssueMessage.compile("{member}{signature} called from {enclosingClass}{",
+            "com.example.Api", "run", null, null, null));
+    }
+}
@@ -0,0 +1,52 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleStateTest {
+
+    private static final DeprecatedApiMatcher MATCHER = DeprecatedApiMatcher.compile(DeprecatedApiConfig.parseFromJson(
+        "[{\"fqcn\":\"com.example.Api\",\"member\":\"run\",\"migration\":\"Use start()\"}]"));
+
+    @Test
+    void test_modules_of_one_analysis_keep_their_reports(@TempDir Path workDir) throws IOException {
+        for (String module : List.of("com.example:core", "com.example:web")) {
+            ModuleState state = new ModuleState(CustomDeprecationCheck.NODES_TO_VISIT);
+            state.metrics().fileStarted(false, 0L);
+            state.recordUsages(workDir.toFile(), module, MATCHER, module + ":src/A.java", List.of(0));
+            state.finish(workDir.toFile(), module, true);
+        }
+
+        assertNotEquals(UsageInventory.fileName("com.example:core"), UsageInventory.fileName("com.example:web"));
+        for (String module : List.of("com.example:core", "com.example:web")) {
+            List<String> rows = Files.readAllLines(workDir.resolve(UsageInventory.fileName(module)), StandardCharsets.UTF_8);
+            assertEquals(List.of(
+                UsageInventory.HEADER,
+                "file," + module + "," + module + ":src/A.java,com.example.Api,run,,1,",
+                "module," + module + ",,com.example.Api,run,,1,1"), rows);
+        }
+        try (Stream<Path> reports = Files.list(workDir)) {
+            assertEquals(2, reports.filter(file -> file.getFileName().toString().startsWith(CheckMetrics.REPORT_FILE_PREFIX)).count());
+        }
+    }
+
+    @Test
+    void test_module_file_names_are_portable() {
+        assertEquals("custom-deprecation-inventory.csv", UsageInventory.fileName(""));
+        assertEquals("custom-deprecation-inventory-my-app_1.0.csv", UsageInventory.fileName("my-app_1.0"));
+        assertTrue(UsageInventory.fileName("com.example:core").matches("custom-deprecation-inventory-com\\.example_core-[0-9a-f]{8}\\.csv"));
+        // a key needing no replacement never collides with a replaced one
+        assertNotEquals(UsageInventory.fileName("com.example_core"), UsageInventory.fileName("com.example:core"));
+    }
+}
@@ -0,0 +1,41 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameAutomatonTest {
+
+    private static final NameAutomaton AUTOMATON = NameAutomaton.of(List.of("run", "runAll", "unit", "OldApi", "close"));
+
+    @Test
+    void test_whole_identifiers_are_found() {
+        assertTrue(AUTOMATON.occursIn("api.run();"));
+        assertTrue(AUTOMATON.occursIn("run"));
+        assertTrue(AUTOMATON.occursIn("x.runAll(1)"));
+        assertTrue(AUTOMATON.occursIn("new OldApi()"));
+        assertTrue(AUTOMATON.occursIn("// close the stream\n"));
+        assertTrue(AUTOMATON.occursIn("rerun(); unit.test();"));
+    }
+
+    @Test
+    void test_parts_of_longer_identifiers_are_ignored() {
+        assertFalse(AUTOMATON.occursIn("rerun(); running = true; runAlls();"));
+        assertFalse(AUTOMATON.occursIn("community closed $run run_ run1"));
+        assertFalse(AUTOMATON.occursIn("class NotOldApi {}"));
+        assertFalse(AUTOMATON.occursIn(""));
+    }
+
+    @Test
+    void test_overlapping_names_are_found_through_failure_links() {
+        NameAutomaton automaton = NameAutomaton.of(List.of("abcd", "bc", "c"));
+
+        assertTrue(automaton.occursIn("ab c"));
+        assertTrue(automaton.occursIn("a.bc"));
+        assertFalse(automaton.occursIn("abce"));
+        assertFalse(NameAutomaton.of(List.of()).occursIn("anything"));
+    }
+}
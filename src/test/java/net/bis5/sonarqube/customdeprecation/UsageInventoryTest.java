@@ -0,0 +1,45 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+package net.bis5.sonarqube.customdeprecation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UsageInventoryTest {
+
+    private static final List<DeprecatedApi> ENTRIES = DeprecatedApiMatcher.compile(DeprecatedApiConfig.parseFromJson("["
+        + "{\"fqcn\":\"com.example.Api\",\"member\":\"process\",\"arguments\":\"(java.lang.String,int)\",\"migration\":\"a\"},"
+        + "{\"fqcn\":\"com.example.Api\",\"member\":\"<init>\",\"migration\":\"b\"},"
+        + "{\"fqcn\":\"com.example.Constants\",\"member\":\"OLD\",\"migration\":\"c\"}"
+        + "]")).entries();
+
+    @Test
+    void test_usages_are_written_per_file_and_per_module(@TempDir Path workDir) throws IOException {
+        UsageInventory inventory = UsageInventory.open(workDir, "project", ENTRIES);
+        inventory.record(1);
+        inventory.record(0);
+        inventory.record(1);
+        inventory.fileDone("project:src/A.java");
+        inventory.fileDone("project:src/Clean.java");
+        inventory.record(1);
+        inventory.record(7);
+        inventory.fileDone("project:src/B,C.java");
+        inventory.close();
+
+        assertEquals(List.of(
+            UsageInventory.HEADER,
+            "file,project,project:src/A.java,com.example.Api,process,\"(java.lang.String,int)\",1,",
+            "file,project,project:src/A.java,com.example.Api,<init>,,2,",
+            "file,project,\"project:src/B,C.java\",com.example.Api,<init>,,1,",
+            "module,project,,com.example.Api,process,\"(java.lang.String,int)\",1,1",
+            "module,project,,com.example.Api,<init>,,3,2",
+            "module,project,,com.example.Constants,OLD,,0,0"),
+            Files.readAllLines(workDir.resolve("custom-deprecation-inventory-project.csv"), StandardCharsets.UTF_8));
+    }
+}